@@ -0,0 +1,87 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of building a tree from ascending keys, from the root, from
+ * the finger and through insertAfter.
+ *
+ * @version 1.0
+ * File: AppendBenchmark.java
+ *
+ * Description: Each call builds a tree of size entries from empty and is
+ * timed as a single shot.  SEQUENTIAL appends every key at the right edge;
+ * RANDOM shows what the finger costs when it almost never helps.  The
+ * insertAfter run keeps one cursor on the last key inserted, so it only
+ * applies to ascending orders.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class AppendBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public KeyDistribution distribution;
+
+    @Param({"3", "15"})
+    public int maxItems;
+
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = KeyDistribution.boxed(distribution.order(size, 42));
+    }
+
+    @Benchmark
+    public TwoFourTree fromRoot() {
+        TwoFourTree tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        for (Integer key : keys) {
+            tree.insertElement(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public TwoFourTree fromFinger() {
+        TwoFourTree tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        tree.setFingerEnabled(true);
+        for (Integer key : keys) {
+            tree.insertElement(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public TwoFourTree throughCursor() {
+        TwoFourTree tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        if (distribution != KeyDistribution.SEQUENTIAL) {
+            return tree;
+        }
+        tree.insertElement(keys[0], keys[0]);
+        TwoFourTreeCursor cursor = tree.cursor();
+        cursor.next();
+        for (int i = 1; i < keys.length; i++) {
+            tree.insertAfter(cursor, keys[i], keys[i]);
+        }
+        return tree;
+    }
+}
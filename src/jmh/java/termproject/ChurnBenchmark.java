@@ -0,0 +1,76 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of delete-heavy churn, for allocation rates.
+ *
+ * @version 1.0
+ * File: ChurnBenchmark.java
+ *
+ * Description: Each operation removes one key and inserts back the key
+ * removed a fixed distance earlier, so the tree keeps splitting and fusing
+ * at a steady size.  Run it with -prof gc to see the bytes allocated per
+ * operation with node recycling on and off; one Item per insert is the
+ * floor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChurnBenchmark {
+    private static final int LAG = 1000;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"3", "15"})
+    public int maxItems;
+
+    @Param({"false", "true"})
+    public boolean recycling;
+
+    private TwoFourTree tree;
+    private Integer[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        tree.setNodeRecycling(recycling);
+        keys = KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42));
+        //leave the first LAG keys out; they are the first to go back in
+        for (int i = LAG; i < size; i++) {
+            tree.insertElement(keys[i], keys[i]);
+        }
+        next = LAG;
+    }
+
+    @Benchmark
+    public Object churn() {
+        Integer out = keys[next];
+        int back = next - LAG;
+        if (back < 0) {
+            back += size;
+        }
+        Object removed = tree.removeElement(out);
+        tree.insertElement(keys[back], keys[back]);
+        next = (next + 1 == size) ? 0 : next + 1;
+        return removed;
+    }
+}
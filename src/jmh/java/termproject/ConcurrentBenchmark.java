@@ -0,0 +1,168 @@
+package termproject;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of throughput under concurrent access.
+ *
+ * @version 1.0
+ * File: ConcurrentBenchmark.java
+ *
+ * Description: Threads share one dictionary of size keys.  Each operation
+ * picks a random key; with probability writePercent it removes the key
+ * and inserts it back, otherwise it looks it up.  ConcurrentTwoFourTree is
+ * compared with a TwoFourTree behind a single lock and with
+ * ConcurrentSkipListMap.  JMH takes one thread count per run; main() runs
+ * 1, 2, 4, 8, 16 and 32 threads in turn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0", "10", "50"})
+    public int writePercent;
+
+    @Param({"CONCURRENT_TWO_FOUR_TREE", "LOCKED_TWO_FOUR_TREE", "SKIP_LIST"})
+    public String structure;
+
+    private Dictionary dictionary;
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (structure) {
+        case "CONCURRENT_TWO_FOUR_TREE":
+            dictionary = new ConcurrentTwoFourTree(new IntegerComparator(), 15);
+            break;
+        case "LOCKED_TWO_FOUR_TREE":
+            dictionary = new LockedDictionary(new TwoFourTree(new IntegerComparator(), 15));
+            break;
+        default:
+            dictionary = new SkipListDictionary();
+            break;
+        }
+        keys = KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42));
+        for (Integer key : keys) {
+            dictionary.insertElement(key, key);
+        }
+    }
+
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = keys[random.nextInt(size)];
+        //another thread may have the key out at this moment
+        try {
+            if (random.nextInt(100) < writePercent) {
+                Object element = dictionary.removeElement(key);
+                dictionary.insertElement(key, element);
+                return element;
+            }
+            return dictionary.findElement(key);
+        }
+        catch (ElementNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs the benchmark at each thread count from 1 to 32
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Dictionary that serializes every call on one monitor
+     */
+    static final class LockedDictionary implements Dictionary {
+        private final Dictionary dictionary;
+
+        LockedDictionary(Dictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        public synchronized int size() {
+            return dictionary.size();
+        }
+
+        public synchronized boolean isEmpty() {
+            return dictionary.isEmpty();
+        }
+
+        public synchronized Object findElement(Object key) {
+            return dictionary.findElement(key);
+        }
+
+        public synchronized void insertElement(Object key, Object element) {
+            dictionary.insertElement(key, element);
+        }
+
+        public synchronized Object removeElement(Object key) {
+            return dictionary.removeElement(key);
+        }
+    }
+
+    /**
+     * Dictionary over ConcurrentSkipListMap
+     */
+    static final class SkipListDictionary implements Dictionary {
+        private final ConcurrentSkipListMap<Integer, Object> map = new ConcurrentSkipListMap<>();
+
+        public int size() {
+            return map.size();
+        }
+
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        public Object findElement(Object key) {
+            return map.get(key);
+        }
+
+        public void insertElement(Object key, Object element) {
+            map.put((Integer) key, element);
+        }
+
+        public Object removeElement(Object key) {
+            Object removed = map.remove(key);
+            if (removed == null) {
+                throw new ElementNotFoundException("Element specified was not found");
+            }
+            return removed;
+        }
+    }
+}
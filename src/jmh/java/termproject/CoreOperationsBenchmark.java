@@ -0,0 +1,142 @@
+package termproject;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of insertElement, findElement, removeElement and a mixed
+ * workload, on TwoFourTree and on java.util.TreeMap.
+ *
+ * @version 1.0
+ * File: CoreOperationsBenchmark.java
+ *
+ * Description: insert builds a dictionary of size keys from empty and
+ * remove empties a full one; each is timed as a single shot, so divide by
+ * size for the cost of one call.  find and mixed report the average time
+ * of one operation against a full dictionary: find looks keys up
+ * in the distribution's lookup stream, and mixed does one update (remove
+ * the key, then insert it back) for every nine lookups, so the size stays
+ * fixed.  The 10M sizes need a large heap; the fork sets one.
+ *
+ * Example: java -jar target/benchmarks.jar CoreOperations -p size=1000000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class CoreOperationsBenchmark {
+    private static final int LOOKUP_STREAM = 1 << 20;
+    private static final long SEED = 42;
+
+    /**
+     * Keys and one full dictionary shared by the benchmarks of a trial
+     */
+    @State(Scope.Thread)
+    public static class Data {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN", "REVERSE"})
+        public KeyDistribution distribution;
+
+        @Param({"TWO_FOUR_TREE", "TWO_FOUR_TREE_TOP_DOWN", "TREE_MAP"})
+        public Structure structure;
+
+        @Param({"3"})
+        public int maxItems;
+
+        Integer[] order;
+        Integer[] lookups;
+        boolean[] update;
+        Dictionary full;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            order = KeyDistribution.boxed(distribution.order(size, SEED));
+            lookups = KeyDistribution.boxed(
+                    distribution.lookups(size, LOOKUP_STREAM, SEED + 1));
+            update = new boolean[LOOKUP_STREAM];
+            Random random = new Random(SEED + 2);
+            for (int i = 0; i < LOOKUP_STREAM; i++) {
+                update[i] = random.nextInt(10) == 0;
+            }
+            full = fill(structure.create(maxItems), order);
+        }
+
+        Integer nextLookup() {
+            Integer key = lookups[next];
+            next = (next + 1) & (LOOKUP_STREAM - 1);
+            return key;
+        }
+    }
+
+    /**
+     * A full dictionary rebuilt before each call of remove
+     */
+    @State(Scope.Thread)
+    public static class Doomed {
+        Dictionary dictionary;
+
+        @Setup(Level.Invocation)
+        public void setUp(Data data) {
+            dictionary = fill(data.structure.create(data.maxItems), data.order);
+        }
+    }
+
+    static Dictionary fill(Dictionary dictionary, Integer[] keys) {
+        for (Integer key : keys) {
+            dictionary.insertElement(key, key);
+        }
+        return dictionary;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Dictionary insert(Data data) {
+        return fill(data.structure.create(data.maxItems), data.order);
+    }
+
+    @Benchmark
+    public Object find(Data data) {
+        return data.full.findElement(data.nextLookup());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int remove(Data data, Doomed doomed) {
+        Dictionary dictionary = doomed.dictionary;
+        for (Integer key : data.order) {
+            dictionary.removeElement(key);
+        }
+        return dictionary.size();
+    }
+
+    @Benchmark
+    public Object mixed(Data data) {
+        int index = data.next;
+        Integer key = data.nextLookup();
+        if (data.update[index]) {
+            Object element = data.full.removeElement(key);
+            data.full.insertElement(key, element);
+            return element;
+        }
+        return data.full.findElement(key);
+    }
+}
@@ -0,0 +1,140 @@
+package termproject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of DurableTwoFourTree: ingest with durability on and off,
+ * and recovery time.
+ *
+ * @version 1.0
+ * File: DurabilityBenchmark.java
+ *
+ * Description: ingest inserts fresh keys from several threads at once, so
+ * group commit has callers to batch; durable=false runs the same inserts
+ * against a PersistentTwoFourTree behind a lock, which is what the durable
+ * tree does minus the log.  recover times opening a directory holding a
+ * snapshot of size entries plus a log tail of tail records, written once
+ * per trial.  Files go under java.io.tmpdir.
+ */
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    /**
+     * Tree that ingest writes to
+     */
+    @State(Scope.Benchmark)
+    public static class Ingest {
+        @Param({"true", "false"})
+        public boolean durable;
+
+        Path directory;
+        Dictionary dictionary;
+        final AtomicInteger nextKey = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            if (durable) {
+                directory = Files.createTempDirectory("twofour-ingest");
+                dictionary = new DurableTwoFourTree(directory, new IntegerComparator(), 15,
+                        new IntegerCodec(), new IntegerCodec(), 64L << 20);
+            }
+            else {
+                dictionary = new ConcurrentBenchmark.LockedDictionary(
+                        new PersistentTwoFourTree(new IntegerComparator(), 15));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            if (durable) {
+                ((DurableTwoFourTree) dictionary).close();
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Directory written once per trial for recover to open
+     */
+    @State(Scope.Benchmark)
+    public static class Recovery {
+        @Param({"1000000"})
+        public int size;
+
+        @Param({"0", "100000"})
+        public int tail;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("twofour-recover");
+            DurableTwoFourTree tree = new DurableTwoFourTree(directory,
+                    new IntegerComparator(), 15, new IntegerCodec(), new IntegerCodec(),
+                    Long.MAX_VALUE);
+            int[] keys = KeyDistribution.RANDOM.order(size + tail, 42);
+            for (int i = 0; i < size; i++) {
+                tree.insertElement(keys[i], keys[i]);
+            }
+            tree.checkpoint();
+            for (int i = size; i < size + tail; i++) {
+                tree.insertElement(keys[i], keys[i]);
+            }
+            tree.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public void ingest(Ingest ingest) {
+        Integer key = ingest.nextKey.getAndIncrement();
+        ingest.dictionary.insertElement(key, key);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recover(Recovery recovery) throws IOException {
+        DurableTwoFourTree tree = new DurableTwoFourTree(recovery.directory,
+                new IntegerComparator(), 15, new IntegerCodec(), new IntegerCodec(),
+                Long.MAX_VALUE);
+        int size = tree.size();
+        tree.close();
+        return size;
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package termproject;
+
+import java.util.Random;
+
+/**
+ * Key orders used by the benchmarks.
+ *
+ * @version 1.0
+ * File: KeyDistribution.java
+ *
+ * Description: Every benchmark works on the keys 0 to n - 1.  order()
+ * gives the order in which they are inserted or removed, always a
+ * permutation so that each key is used exactly once.  lookups() gives a
+ * stream of keys to search for, which may repeat.  For ZIPFIAN the
+ * popular keys are scattered over the key space, as in YCSB's scrambled
+ * Zipfian generator, so the hot set is not one contiguous run of leaves;
+ * its order() puts keys in the order they first appear in that stream.
+ */
+public enum KeyDistribution {
+    SEQUENTIAL,
+    RANDOM,
+    ZIPFIAN,
+    REVERSE;
+
+    // skew used by YCSB
+    private static final double ZIPF_THETA = 0.99;
+
+    /**
+     * Returns the keys 0 to n - 1 in this distribution's order
+     * @param n number of keys
+     * @param seed for the random orders
+     * @return permutation of 0 to n - 1
+     */
+    public int[] order(int n, long seed) {
+        int[] keys = new int[n];
+        switch (this) {
+        case SEQUENTIAL:
+            for (int i = 0; i < n; i++) {
+                keys[i] = i;
+            }
+            break;
+        case REVERSE:
+            for (int i = 0; i < n; i++) {
+                keys[i] = n - 1 - i;
+            }
+            break;
+        case RANDOM:
+            for (int i = 0; i < n; i++) {
+                keys[i] = i;
+            }
+            shuffle(keys, n, new Random(seed));
+            break;
+        case ZIPFIAN:
+            //first appearances in the Zipfian stream, then the keys it missed
+            boolean[] used = new boolean[n];
+            int count = 0;
+            Zipf zipf = new Zipf(n, seed);
+            for (int i = 0; i < n; i++) {
+                int key = zipf.next();
+                if (!used[key]) {
+                    used[key] = true;
+                    keys[count++] = key;
+                }
+            }
+            int firstMissed = count;
+            for (int key = 0; key < n; key++) {
+                if (!used[key]) {
+                    keys[count++] = key;
+                }
+            }
+            int[] missed = new int[n - firstMissed];
+            System.arraycopy(keys, firstMissed, missed, 0, missed.length);
+            shuffle(missed, missed.length, new Random(seed + 1));
+            System.arraycopy(missed, 0, keys, firstMissed, missed.length);
+            break;
+        }
+        return keys;
+    }
+
+    /**
+     * Returns a stream of keys to look up, drawn from 0 to n - 1
+     * @param n number of keys
+     * @param count length of the stream
+     * @param seed for the random streams
+     * @return keys to look up
+     */
+    public int[] lookups(int n, int count, long seed) {
+        int[] keys = new int[count];
+        switch (this) {
+        case SEQUENTIAL:
+            for (int i = 0; i < count; i++) {
+                keys[i] = i % n;
+            }
+            break;
+        case REVERSE:
+            for (int i = 0; i < count; i++) {
+                keys[i] = n - 1 - i % n;
+            }
+            break;
+        case RANDOM:
+            Random random = new Random(seed);
+            for (int i = 0; i < count; i++) {
+                keys[i] = random.nextInt(n);
+            }
+            break;
+        case ZIPFIAN:
+            Zipf zipf = new Zipf(n, seed);
+            for (int i = 0; i < count; i++) {
+                keys[i] = zipf.next();
+            }
+            break;
+        }
+        return keys;
+    }
+
+    /**
+     * Boxes keys once, outside the measured code
+     * @param keys to box
+     * @return the same keys as Integer objects
+     */
+    public static Integer[] boxed(int[] keys) {
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxed[i] = keys[i];
+        }
+        return boxed;
+    }
+
+    private static void shuffle(int[] keys, int n, Random random) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+    }
+
+    /**
+     * Zipfian rank generator (Gray et al., "Quickly generating
+     * billion-record synthetic databases"), with ranks scrambled over the
+     * key space by a multiplicative hash
+     */
+    private static final class Zipf {
+        private final int n;
+        private final Random random;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+
+        Zipf(int n, long seed) {
+            this.n = n;
+            this.random = new Random(seed);
+            double zeta2 = zeta(2);
+            zetaN = zeta(n);
+            alpha = 1.0 / (1.0 - ZIPF_THETA);
+            eta = (1 - Math.pow(2.0 / n, 1 - ZIPF_THETA)) / (1 - zeta2 / zetaN);
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            long rank;
+            if (uz < 1.0) {
+                rank = 0;
+            }
+            else if (uz < 1.0 + Math.pow(0.5, ZIPF_THETA)) {
+                rank = 1;
+            }
+            else {
+                rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));
+            }
+            rank = Math.min(rank, n - 1);
+            //spread popular ranks over the key space
+            long scrambled = (rank * 0x9E3779B97F4A7C15L) >>> 1;
+            return (int) (scrambled % n);
+        }
+
+        private static double zeta(long n) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, ZIPF_THETA);
+            }
+            return sum;
+        }
+    }
+}
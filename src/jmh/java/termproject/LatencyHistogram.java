@@ -0,0 +1,104 @@
+package termproject;
+
+/**
+ * Histogram of latencies in nanoseconds, for percentiles.
+ *
+ * @version 1.0
+ * File: LatencyHistogram.java
+ *
+ * Description: Values below 64 get a bucket each.  Above that, every power
+ * of two is cut into 32 equal buckets, so a bucket is never wider than
+ * about 3% of the values in it and the whole range of a long fits in under
+ * two thousand counters.  Recording is a shift and an increment, cheap
+ * enough to time every operation of a replay.  Percentiles report the top
+ * of the bucket they fall in, so they never understate a latency.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // values below this are counted exactly
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+
+    private final long[] counts = new long[LINEAR + (64 - SUB_BITS - 1) * SUB_BUCKETS];
+    private long total = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    /**
+     * Counts one latency
+     * @param nanos latency, negative values counted as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[index(value)]++;
+        total++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Returns the number of latencies counted
+     * @return count
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Returns the greatest latency counted
+     * @return maximum, 0 if none
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the mean latency
+     * @return mean, 0 if none
+     */
+    public double mean() {
+        return (total == 0) ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Returns the latency below or at which a fraction of the counted
+     * latencies fall
+     * @param fraction in [0, 1], 0.99 for the 99th percentile
+     * @return top of the bucket holding that latency, at most max(); 0 if
+     * none were counted
+     */
+    public long percentile(double fraction) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        //value >>> shift falls in [SUB_BUCKETS, LINEAR)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,89 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the latency distribution of removes, with lazy deletion on
+ * and off.
+ *
+ * @version 1.0
+ * File: LazyDeletionBenchmark.java
+ *
+ * Description: remove takes out one key and inserts back the key removed
+ * a fixed distance earlier, as ChurnBenchmark does, and is sampled one call
+ * at a time so the percentiles show the tail that cascading fusions give
+ * eager removes.  With lazy deletion on, the removes only mark Items and
+ * the auto-compaction slices do the restructuring.  compactBetween adds an
+ * explicit compact(1) per call, the way a caller with idle time would
+ * drain tombstones.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LazyDeletionBenchmark {
+    private static final int LAG = 1000;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"3", "15"})
+    public int maxItems;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private TwoFourTree tree;
+    private Integer[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        tree.setLazyDeletion(lazy);
+        keys = KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42));
+        //leave the first LAG keys out; they are the first to go back in
+        for (int i = LAG; i < size; i++) {
+            tree.insertElement(keys[i], keys[i]);
+        }
+        next = LAG;
+    }
+
+    private Object churn() {
+        Integer out = keys[next];
+        int back = next - LAG;
+        if (back < 0) {
+            back += size;
+        }
+        Object removed = tree.removeElement(out);
+        tree.put(keys[back], keys[back]);
+        next = (next + 1 == size) ? 0 : next + 1;
+        return removed;
+    }
+
+    @Benchmark
+    public Object remove() {
+        return churn();
+    }
+
+    @Benchmark
+    public Object compactBetween() {
+        tree.compact(1);
+        return churn();
+    }
+}
@@ -0,0 +1,95 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of findElement with and without the lookup cache.
+ *
+ * @version 1.0
+ * File: LookupCacheBenchmark.java
+ *
+ * Description: Looks keys up in a full tree, following the
+ * distribution's lookup stream; ZIPFIAN is the skewed case the cache is
+ * for, RANDOM the case it cannot help.  A capacity of 0 runs without the
+ * cache.  The cache's hits and misses over each iteration are reported
+ * next to the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class LookupCacheBenchmark {
+    private static final int LOOKUP_STREAM = 1 << 20;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"ZIPFIAN", "RANDOM"})
+    public KeyDistribution distribution;
+
+    @Param({"0", "4096", "65536"})
+    public int capacity;
+
+    private TwoFourTree tree;
+    private Integer[] lookups;
+    private int next;
+
+    /**
+     * Cache statistics for the iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CacheCounters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void setUp(LookupCacheBenchmark benchmark) {
+            LookupCache cache = benchmark.tree.lookupCache();
+            if (cache != null) {
+                cache.resetStats();
+            }
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator());
+        for (Integer key : KeyDistribution.boxed(distribution.order(size, 42))) {
+            tree.insertElement(key, key);
+        }
+        tree.setLookupCache(capacity);
+        lookups = KeyDistribution.boxed(distribution.lookups(size, LOOKUP_STREAM, 43));
+    }
+
+    @Benchmark
+    public Object find(CacheCounters counters) {
+        Integer key = lookups[next];
+        next = (next + 1) & (LOOKUP_STREAM - 1);
+        Object found = tree.findElement(key);
+        LookupCache cache = tree.lookupCache();
+        if (cache != null) {
+            counters.hits = cache.getHits();
+            counters.misses = cache.getMisses();
+        }
+        return found;
+    }
+}
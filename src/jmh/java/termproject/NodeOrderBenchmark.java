@@ -0,0 +1,77 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of lookup latency and tree depth against the node order.
+ *
+ * @version 1.0
+ * File: NodeOrderBenchmark.java
+ *
+ * Description: Builds a TwoFourTree with maxItems keys per node and times
+ * random lookups in it.  The tree's height is reported next to the score
+ * as the "height" counter, so one run shows how depth falls and how the
+ * lookup cost follows as nodes get wider.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class NodeOrderBenchmark {
+    private static final int LOOKUP_STREAM = 1 << 20;
+
+    @Param({"3", "4", "8", "16", "32", "64", "128"})
+    public int maxItems;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    private TwoFourTree tree;
+    private Integer[] lookups;
+    private int next;
+
+    /**
+     * Reports the height of the tree under test
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Depth {
+        public int height;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        for (Integer key : KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42))) {
+            tree.insertElement(key, key);
+        }
+        lookups = KeyDistribution.boxed(distribution.lookups(size, LOOKUP_STREAM, 43));
+    }
+
+    @Benchmark
+    public Object find(Depth depth) {
+        depth.height = tree.height();
+        Integer key = lookups[next];
+        next = (next + 1) & (LOOKUP_STREAM - 1);
+        return tree.findElement(key);
+    }
+}
@@ -0,0 +1,71 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of full scans, sequential against parallel.
+ *
+ * @version 1.0
+ * File: ParallelScanBenchmark.java
+ *
+ * Description: Sums the keys of a bulk-loaded tree of size entries with a
+ * sequential stream, a parallel stream, parallelForEach and reduce.  The
+ * parallel forms split the tree with TwoFourTreeSpliterator and run on the
+ * common fork/join pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ParallelScanBenchmark {
+
+    @Param({"10000000"})
+    public int size;
+
+    private TwoFourTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = KeyDistribution.boxed(KeyDistribution.SEQUENTIAL.order(size, 0));
+        tree = new TwoFourTree(new IntegerComparator());
+        tree.bulkLoad(keys, keys);
+    }
+
+    @Benchmark
+    public long sequentialStream() {
+        return tree.stream().mapToLong(item -> (Integer) item.key()).sum();
+    }
+
+    @Benchmark
+    public long parallelStream() {
+        return tree.parallelStream().mapToLong(item -> (Integer) item.key()).sum();
+    }
+
+    @Benchmark
+    public long parallelForEach() {
+        LongAdder sum = new LongAdder();
+        tree.parallelForEach(item -> sum.add((Integer) item.key()));
+        return sum.sum();
+    }
+
+    @Benchmark
+    public long reduce() {
+        return tree.reduce(0L, (sum, item) -> sum + (Integer) item.key(), Long::sum);
+    }
+}
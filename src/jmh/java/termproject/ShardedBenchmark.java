@@ -0,0 +1,146 @@
+package termproject;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of write throughput against the number of threads.
+ *
+ * @version 1.0
+ * File: ShardedBenchmark.java
+ *
+ * Description: Threads share one dictionary of size keys.  write removes
+ * a random key and inserts it back.  batch inserts a sorted batch of
+ * absent keys and then removes it, through insertAll and removeAll where
+ * the dictionary has them and key by key otherwise.  ShardedTwoFourTree
+ * with one shard and with sixteen (cut evenly over the keys, rebalancing
+ * in the background) is compared with a TwoFourTree behind a single lock
+ * and with ConcurrentTwoFourTree.  JMH takes one thread count per run;
+ * main() runs 1, 2, 4, 8, 16 and 32 threads in turn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ShardedBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"SHARDED_1", "SHARDED_16", "LOCKED_TWO_FOUR_TREE", "CONCURRENT_TWO_FOUR_TREE"})
+    public String structure;
+
+    private Dictionary dictionary;
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (structure) {
+        case "SHARDED_1":
+            dictionary = new ShardedTwoFourTree(new IntegerComparator(), 15, 1, new Object[0]);
+            break;
+        case "SHARDED_16":
+            Object[] boundaries = new Object[15];
+            for (int i = 0; i < boundaries.length; i++) {
+                boundaries[i] = (int) ((long) 2 * size * (i + 1) / 16);
+            }
+            ShardedTwoFourTree sharded =
+                    new ShardedTwoFourTree(new IntegerComparator(), 15, 16, boundaries);
+            sharded.startRebalancing(100);
+            dictionary = sharded;
+            break;
+        case "LOCKED_TWO_FOUR_TREE":
+            dictionary = new ConcurrentBenchmark.LockedDictionary(
+                    new TwoFourTree(new IntegerComparator(), 15));
+            break;
+        default:
+            dictionary = new ConcurrentTwoFourTree(new IntegerComparator(), 15);
+            break;
+        }
+        keys = KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42));
+        for (Integer key : keys) {
+            dictionary.insertElement(key, key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dictionary instanceof ShardedTwoFourTree) {
+            ((ShardedTwoFourTree) dictionary).close();
+        }
+    }
+
+    @Benchmark
+    public Object write() {
+        Integer key = keys[ThreadLocalRandom.current().nextInt(size)];
+        //another thread may have the key out at this moment
+        try {
+            Object element = dictionary.removeElement(key);
+            dictionary.insertElement(key, element);
+            return element;
+        }
+        catch (ElementNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * BATCH)
+    public int batch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        //keys from size up are never in the dictionary between batches
+        Object[] batch = new Object[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = size + random.nextInt(size);
+        }
+        Arrays.sort(batch);
+        if (dictionary instanceof ShardedTwoFourTree) {
+            ShardedTwoFourTree sharded = (ShardedTwoFourTree) dictionary;
+            sharded.insertAll(batch, batch);
+            return sharded.removeAll(batch);
+        }
+        for (Object key : batch) {
+            dictionary.insertElement(key, key);
+        }
+        for (Object key : batch) {
+            dictionary.removeElement(key);
+        }
+        return batch.length;
+    }
+
+    /**
+     * Runs the benchmark at each thread count from 1 to 32
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(ShardedBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of splitting a tree at a random key and joining the halves
+ * back together.
+ *
+ * @version 1.0
+ * File: SplitJoinBenchmark.java
+ *
+ * Description: Each operation splits the tree around a random key and
+ * joins the two parts again, so the tree ends up as it started and the
+ * time should grow with the height, not the size.  With counts on, the
+ * split also learns the size of each part without counting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SplitJoinBenchmark {
+    private static final int KEY_STREAM = 1 << 16;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"3", "15"})
+    public int maxItems;
+
+    @Param({"false", "true"})
+    public boolean counts;
+
+    private TwoFourTree tree;
+    private Integer[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator(), maxItems);
+        for (Integer key : KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42))) {
+            tree.insertElement(key, key);
+        }
+        tree.setSubtreeCounts(counts);
+        keys = KeyDistribution.boxed(KeyDistribution.RANDOM.lookups(size, KEY_STREAM, 43));
+    }
+
+    @Benchmark
+    public TwoFourTree splitAndJoin() {
+        Integer key = keys[next];
+        next = (next + 1) & (KEY_STREAM - 1);
+        TwoFourTree[] parts = tree.split(key);
+        return TwoFourTree.join(parts[0], parts[1]);
+    }
+}
@@ -0,0 +1,193 @@
+package termproject;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of lookups by URL-like String keys.
+ *
+ * @version 1.0
+ * File: StringKeyBenchmark.java
+ *
+ * Description: Fills a TwoFourTree with a StringComparator, a
+ * StringTwoFourTree and a TreeMap with the same URLs, which share long
+ * prefixes the way crawled URLs do, then looks up random keys among them.
+ * The lookup keys are copies, so no search can stop early on identical
+ * Strings.  main() measures the heap each structure takes per entry,
+ * keys included and elements left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class StringKeyBenchmark {
+    private static final int LOOKUP_STREAM = 1 << 20;
+    private static final String[] HOSTS = {
+        "https://www.example.com", "https://docs.example.com", "https://shop.example.org",
+        "http://news.example.net", "https://api.example.io"
+    };
+    private static final String[] SECTIONS = {
+        "/products/", "/articles/2024/", "/articles/2025/", "/users/profile/", "/search?q=",
+        "/static/assets/images/"
+    };
+
+    /**
+     * Structures compared
+     */
+    public enum Layout {
+        TWO_FOUR_TREE, STRING_TWO_FOUR_TREE, TREE_MAP
+    }
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"TWO_FOUR_TREE", "STRING_TWO_FOUR_TREE", "TREE_MAP"})
+    public Layout layout;
+
+    // ignored by TREE_MAP
+    @Param({"3", "16"})
+    public int maxItems;
+
+    private TwoFourTree tree;
+    private StringTwoFourTree stringTree;
+    private TreeMap<String, Object> treeMap;
+    private String[] lookups;
+    private int next;
+
+    /**
+     * Builds n distinct URLs, in random order
+     * @param n number of URLs
+     * @param seed for the generator
+     * @return the URLs
+     */
+    static String[] urls(int n, long seed) {
+        Random random = new Random(seed);
+        java.util.HashSet<String> seen = new java.util.HashSet<>();
+        String[] urls = new String[n];
+        int count = 0;
+        StringBuilder builder = new StringBuilder();
+        while (count < n) {
+            builder.setLength(0);
+            builder.append(HOSTS[random.nextInt(HOSTS.length)]);
+            builder.append(SECTIONS[random.nextInt(SECTIONS.length)]);
+            builder.append(Integer.toString(random.nextInt(1 << 24), 36));
+            if (random.nextBoolean()) {
+                builder.append("/page-").append(random.nextInt(100));
+            }
+            String url = builder.toString();
+            if (seen.add(url)) {
+                urls[count++] = url;
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Builds the chosen structure holding every key
+     */
+    static Object build(Layout layout, String[] keys, int maxItems) {
+        switch (layout) {
+            case TWO_FOUR_TREE:
+                TwoFourTree tree = new TwoFourTree(new StringComparator(), maxItems);
+                for (String key : keys) {
+                    tree.insertElement(key, Boolean.TRUE);
+                }
+                return tree;
+            case STRING_TWO_FOUR_TREE:
+                StringTwoFourTree stringTree = new StringTwoFourTree(maxItems);
+                for (String key : keys) {
+                    stringTree.insertElement(key, Boolean.TRUE);
+                }
+                return stringTree;
+            default:
+                TreeMap<String, Object> treeMap = new TreeMap<>();
+                for (String key : keys) {
+                    treeMap.put(key, Boolean.TRUE);
+                }
+                return treeMap;
+        }
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        String[] keys = urls(size, 42);
+        Object built = build(layout, keys, maxItems);
+        if (layout == Layout.TWO_FOUR_TREE) {
+            tree = (TwoFourTree) built;
+        }
+        else if (layout == Layout.STRING_TWO_FOUR_TREE) {
+            stringTree = (StringTwoFourTree) built;
+        }
+        else {
+            treeMap = (TreeMap<String, Object>) built;
+        }
+        Random random = new Random(43);
+        lookups = new String[LOOKUP_STREAM];
+        for (int i = 0; i < LOOKUP_STREAM; i++) {
+            lookups[i] = new String(keys[random.nextInt(size)]);
+        }
+    }
+
+    @Benchmark
+    public Object find() {
+        String key = lookups[next];
+        next = (next + 1) & (LOOKUP_STREAM - 1);
+        switch (layout) {
+            case TWO_FOUR_TREE:
+                return tree.findElement(key);
+            case STRING_TWO_FOUR_TREE:
+                return stringTree.findElement(key);
+            default:
+                return treeMap.get(key);
+        }
+    }
+
+    /**
+     * Prints the heap each structure takes per entry, measured as the
+     * growth of used heap after a full collection
+     * @param args optionally the number of entries, then maxItems
+     */
+    public static void main(String[] args) {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int maxItems = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        for (Layout layout : Layout.values()) {
+            System.out.printf("%-22s %6.1f bytes/entry%n", layout, measure(layout, n, maxItems));
+        }
+    }
+
+    // heap held by the structure per entry, keys included
+    private static double measure(Layout layout, int n, int maxItems) {
+        long before = usedHeap();
+        Object built = build(layout, urls(n, 42), maxItems);
+        long after = usedHeap();
+        if (built instanceof StringTwoFourTree) {
+            System.out.printf("%-22s %6.1f bytes/entry (node estimate)%n", "",
+                    (double) ((StringTwoFourTree) built).memoryUsed() / n);
+        }
+        return (double) (after - before) / n;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,31 @@
+package termproject;
+
+/**
+ * Dictionaries the core benchmarks compare.
+ *
+ * @version 1.0
+ * File: Structure.java
+ */
+public enum Structure {
+    TWO_FOUR_TREE,
+    // same tree, restructuring on the way down
+    TWO_FOUR_TREE_TOP_DOWN,
+    TREE_MAP;
+
+    /**
+     * Creates an empty dictionary of Integer keys
+     * @param maxItems node order for the tree
+     * @return new dictionary
+     */
+    public Dictionary create(int maxItems) {
+        if (this == TWO_FOUR_TREE) {
+            return new TwoFourTree(new IntegerComparator(), maxItems);
+        }
+        if (this == TWO_FOUR_TREE_TOP_DOWN) {
+            TwoFourTree tree = new TwoFourTree(new IntegerComparator(), maxItems);
+            tree.setTopDown(true);
+            return tree;
+        }
+        return new TreeMapDictionary((a, b) -> Integer.compare((Integer) a, (Integer) b));
+    }
+}
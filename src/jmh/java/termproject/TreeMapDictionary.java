@@ -0,0 +1,42 @@
+package termproject;
+
+import java.util.TreeMap;
+
+/**
+ * Dictionary over java.util.TreeMap, the baseline the benchmarks measure
+ * the tree against.  Both sit behind the same interface so the benchmark
+ * code pays the same dispatch cost for either.
+ *
+ * @version 1.0
+ * File: TreeMapDictionary.java
+ */
+public class TreeMapDictionary implements Dictionary {
+    private final TreeMap<Object, Object> map;
+
+    public TreeMapDictionary(java.util.Comparator<Object> comp) {
+        map = new TreeMap<>(comp);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public Object findElement(Object key) {
+        return map.get(key);
+    }
+
+    public void insertElement(Object key, Object element) {
+        map.put(key, element);
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        if (!map.containsKey(key)) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+        return map.remove(key);
+    }
+}
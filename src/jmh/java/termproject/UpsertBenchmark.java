@@ -0,0 +1,91 @@
+package termproject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of updating the element of a present key, and of looking up
+ * absent keys.
+ *
+ * @version 1.0
+ * File: UpsertBenchmark.java
+ *
+ * Description: The tree holds the even keys below 2 * size.
+ * removeThenInsert updates an element the way callers had to before put,
+ * with two descents and whatever rebalancing they cause; put and merge do
+ * it in one descent, in place.  missingKey looks up odd keys, none of
+ * which is present.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class UpsertBenchmark {
+    private static final int LOOKUP_STREAM = 1 << 20;
+    private static final Integer ONE = 1;
+
+    @Param({"1000000"})
+    public int size;
+
+    private TwoFourTree tree;
+    private Integer[] present;
+    private Integer[] missing;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tree = new TwoFourTree(new IntegerComparator());
+        for (Integer key : KeyDistribution.boxed(KeyDistribution.RANDOM.order(size, 42))) {
+            tree.insertElement(2 * key, 0);
+        }
+        int[] lookups = KeyDistribution.RANDOM.lookups(size, LOOKUP_STREAM, 43);
+        present = new Integer[LOOKUP_STREAM];
+        missing = new Integer[LOOKUP_STREAM];
+        for (int i = 0; i < LOOKUP_STREAM; i++) {
+            present[i] = 2 * lookups[i];
+            missing[i] = 2 * lookups[i] + 1;
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) & (LOOKUP_STREAM - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Object removeThenInsert() {
+        Integer key = present[nextIndex()];
+        Integer count = (Integer) tree.removeElement(key);
+        tree.insertElement(key, count + 1);
+        return count;
+    }
+
+    @Benchmark
+    public Object put() {
+        return tree.put(present[nextIndex()], ONE);
+    }
+
+    @Benchmark
+    public Object merge() {
+        return tree.merge(present[nextIndex()], ONE, (a, b) -> (Integer) a + (Integer) b);
+    }
+
+    @Benchmark
+    public Object missingKey() {
+        return tree.getOrNull(missing[nextIndex()]);
+    }
+}
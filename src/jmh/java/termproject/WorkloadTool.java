@@ -0,0 +1,427 @@
+package termproject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Command-line tool that generates, replays and verifies workload traces.
+ *
+ * @version 1.0
+ * File: WorkloadTool.java
+ *
+ * Description: Traces are WorkloadTrace files, either recorded from real
+ * traffic by wrapping a dictionary in a RecordingDictionary or made by the
+ * generate command with a chosen mix of operations and key skew.  replay
+ * runs a trace against each chosen variant of the tree, starting from an
+ * empty dictionary, and reports throughput and the p50, p99, p99.9 and
+ * maximum latency of each operation type.  Every operation is timed on its
+ * own, so the latencies include a few tens of nanoseconds of clock
+ * overhead.  verify runs a trace against each variant alongside a TreeMap
+ * of key counts and stops a variant at the first result that differs; a
+ * TwoFourTree must also pass checkStructure at the end.  The model keeps
+ * duplicate keys as TwoFourTree does; the TREE_MAP baseline replaces them
+ * instead, so generated traces only insert keys that are absent.  Run it
+ * from the benchmarks jar:
+ *
+ *     java -cp target/benchmarks.jar termproject.WorkloadTool generate t.trace -ops 1000000
+ *     java -cp target/benchmarks.jar termproject.WorkloadTool replay t.trace -warmup 2
+ *     java -cp target/benchmarks.jar termproject.WorkloadTool verify t.trace
+ */
+public class WorkloadTool {
+    private static final String USAGE = String.join("\n",
+            "usage: WorkloadTool generate FILE [-ops N] [-keys N] [-load N]"
+                    + " [-mix INSERT/FIND/REMOVE] [-dist RANDOM|ZIPFIAN|SEQUENTIAL|REVERSE] [-seed N]",
+            "       WorkloadTool replay FILE [-variants ALL|NAME,...] [-order N] [-warmup N]",
+            "       WorkloadTool verify FILE [-variants ALL|NAME,...] [-order N]",
+            "       WorkloadTool info FILE",
+            "variants: " + Arrays.toString(Variant.values()));
+    private static final double[] PERCENTILES = {0.50, 0.99, 0.999};
+    // how often verify compares sizes
+    private static final int SIZE_CHECK_INTERVAL = 4096;
+
+    /**
+     * Dictionaries a trace can be replayed against
+     */
+    public enum Variant {
+        TWO_FOUR_TREE,
+        TOP_DOWN,
+        LOOKUP_CACHE,
+        FINGER,
+        LAZY_DELETION,
+        NODE_RECYCLING,
+        CONCURRENT,
+        SHARDED,
+        TREE_MAP;
+
+        /**
+         * Creates an empty dictionary of Integer keys
+         * @param maxItems node order for the trees
+         * @return new dictionary
+         */
+        public Dictionary create(int maxItems) {
+            TwoFourTree tree = new TwoFourTree(new IntegerComparator(), maxItems);
+            switch (this) {
+            case TOP_DOWN:
+                tree.setTopDown(true);
+                return tree;
+            case LOOKUP_CACHE:
+                tree.setLookupCache(1024);
+                return tree;
+            case FINGER:
+                tree.setFingerEnabled(true);
+                return tree;
+            case LAZY_DELETION:
+                tree.setLazyDeletion(true);
+                return tree;
+            case NODE_RECYCLING:
+                tree.setNodeRecycling(true);
+                return tree;
+            case CONCURRENT:
+                return new ConcurrentTwoFourTree(new IntegerComparator(), maxItems);
+            case SHARDED:
+                return new ShardedTwoFourTree(new IntegerComparator(), maxItems,
+                        Runtime.getRuntime().availableProcessors(), new Object[0]);
+            case TREE_MAP:
+                return new TreeMapDictionary((a, b) -> Integer.compare((Integer) a, (Integer) b));
+            default:
+                return tree;
+            }
+        }
+    }
+
+    /**
+     * Runs one command
+     * @param args the command, the trace file, then options
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+        Map<String, String> options = parseOptions(args);
+        int order = Integer.parseInt(options.getOrDefault("order", "3"));
+        boolean passed = true;
+        switch (args[0]) {
+        case "generate":
+            generate(file, options);
+            break;
+        case "replay":
+            WorkloadTrace trace = WorkloadTrace.read(file);
+            int warmup = Integer.parseInt(options.getOrDefault("warmup", "1"));
+            for (Variant variant : variants(options)) {
+                replay(trace, variant, order, warmup);
+            }
+            break;
+        case "verify":
+            WorkloadTrace verified = WorkloadTrace.read(file);
+            for (Variant variant : variants(options)) {
+                passed &= verify(verified, variant, order);
+            }
+            break;
+        case "info":
+            info(file);
+            break;
+        default:
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    // options follow the file as -name value pairs
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        for (int i = 2; i < args.length; i += 2) {
+            if (!args[i].startsWith("-") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected -option value at " + args[i]
+                        + "\n" + USAGE);
+            }
+            options.put(args[i].substring(1), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static List<Variant> variants(Map<String, String> options) {
+        String names = options.getOrDefault("variants", "ALL");
+        List<Variant> variants = new ArrayList<>();
+        if (names.equalsIgnoreCase("ALL")) {
+            variants.addAll(Arrays.asList(Variant.values()));
+        }
+        else {
+            for (String name : names.split(",")) {
+                variants.add(Variant.valueOf(name.trim().toUpperCase()));
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Writes a synthetic trace.  It opens with a load phase of inserts,
+     * then draws each operation from the mix and its key from the
+     * distribution over the keys 0 to keys - 1.  An insert whose key is
+     * present moves on to the next absent key, and becomes a find if every
+     * key is present; removes and finds may miss.
+     */
+    private static void generate(Path file, Map<String, String> options) throws IOException {
+        int ops = Integer.parseInt(options.getOrDefault("ops", "1000000"));
+        int keys = Integer.parseInt(options.getOrDefault("keys", "100000"));
+        int load = Integer.parseInt(options.getOrDefault("load", Integer.toString(keys / 2)));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        KeyDistribution distribution = KeyDistribution.valueOf(
+                options.getOrDefault("dist", "ZIPFIAN").toUpperCase());
+        String[] mix = options.getOrDefault("mix", "20/70/10").split("/");
+        if (mix.length != 3 || load > keys) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        int insertWeight = Integer.parseInt(mix[0]);
+        int findWeight = Integer.parseInt(mix[1]);
+        int totalWeight = insertWeight + findWeight + Integer.parseInt(mix[2]);
+
+        WorkloadTrace trace = new WorkloadTrace();
+        boolean[] present = new boolean[keys];
+        int live = 0;
+        for (int key : KeyDistribution.RANDOM.order(keys, seed)) {
+            if (live == load) {
+                break;
+            }
+            trace.add(WorkloadTrace.INSERT, key);
+            present[key] = true;
+            live++;
+        }
+        Random random = new Random(seed + 1);
+        int[] drawn = distribution.lookups(keys, ops, seed + 2);
+        for (int i = 0; i < ops; i++) {
+            int key = drawn[i];
+            int pick = random.nextInt(totalWeight);
+            if (pick < insertWeight && live < keys) {
+                while (present[key]) {
+                    key = (key + 1 == keys) ? 0 : key + 1;
+                }
+                trace.add(WorkloadTrace.INSERT, key);
+                present[key] = true;
+                live++;
+            }
+            //an insert with every key present becomes a find
+            else if (pick < insertWeight + findWeight) {
+                trace.add(WorkloadTrace.FIND, key);
+            }
+            else {
+                trace.add(WorkloadTrace.REMOVE, key);
+                if (present[key]) {
+                    present[key] = false;
+                    live--;
+                }
+            }
+        }
+        trace.write(file);
+        System.out.printf("%d operations, %d bytes%n", trace.size(), Files.size(file));
+    }
+
+    private static void info(Path file) throws IOException {
+        WorkloadTrace trace = WorkloadTrace.read(file);
+        long[] counts = new long[3];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < trace.size(); i++) {
+            counts[trace.op(i)]++;
+            min = Math.min(min, trace.key(i));
+            max = Math.max(max, trace.key(i));
+        }
+        System.out.printf("%d operations, %.2f bytes each%n", trace.size(),
+                (double) Files.size(file) / Math.max(trace.size(), 1));
+        for (byte op = WorkloadTrace.INSERT; op <= WorkloadTrace.REMOVE; op++) {
+            System.out.printf("  %-7s %d%n", WorkloadTrace.name(op), counts[op]);
+        }
+        if (trace.size() > 0) {
+            System.out.printf("  keys from %d to %d%n", min, max);
+        }
+    }
+
+    /**
+     * Replays a trace against a fresh dictionary warmup times unmeasured,
+     * then once measured, and prints the report
+     */
+    private static void replay(WorkloadTrace trace, Variant variant, int order, int warmup)
+            throws IOException {
+        Integer[] keys = boxedKeys(trace);
+        for (int i = 0; i < warmup; i++) {
+            run(trace, keys, variant.create(order), null);
+        }
+        LatencyHistogram[] histograms = new LatencyHistogram[3];
+        for (int op = 0; op < histograms.length; op++) {
+            histograms[op] = new LatencyHistogram();
+        }
+        long start = System.nanoTime();
+        long misses = run(trace, keys, variant.create(order), histograms);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s (order %d): %.0f ops/s, %d misses%n", variant, order,
+                trace.size() * 1e9 / Math.max(elapsed, 1), misses);
+        System.out.printf("  %-7s %10s %8s %8s %8s %10s  (ns)%n",
+                "", "count", "p50", "p99", "p99.9", "max");
+        for (byte op = WorkloadTrace.INSERT; op <= WorkloadTrace.REMOVE; op++) {
+            LatencyHistogram histogram = histograms[op];
+            System.out.printf("  %-7s %10d", WorkloadTrace.name(op), histogram.count());
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %8d", histogram.percentile(percentile));
+            }
+            System.out.printf(" %10d%n", histogram.max());
+        }
+    }
+
+    /**
+     * Applies every operation of a trace to a dictionary
+     * @param histograms one per operation type to time each call into;
+     * null to run untimed
+     * @return number of finds and removes that found no entry
+     */
+    private static long run(WorkloadTrace trace, Integer[] keys, Dictionary dictionary,
+            LatencyHistogram[] histograms) throws IOException {
+        long misses = 0;
+        int size = trace.size();
+        for (int i = 0; i < size; i++) {
+            byte op = trace.op(i);
+            Integer key = keys[i];
+            long start = System.nanoTime();
+            if (op == WorkloadTrace.INSERT) {
+                dictionary.insertElement(key, key);
+            }
+            else if (op == WorkloadTrace.FIND) {
+                if (dictionary.findElement(key) == null) {
+                    misses++;
+                }
+            }
+            else {
+                try {
+                    dictionary.removeElement(key);
+                }
+                catch (ElementNotFoundException e) {
+                    misses++;
+                }
+            }
+            if (histograms != null) {
+                histograms[op].record(System.nanoTime() - start);
+            }
+        }
+        if (dictionary instanceof Closeable) {
+            ((Closeable) dictionary).close();
+        }
+        return misses;
+    }
+
+    /**
+     * Replays a trace against a fresh dictionary and a TreeMap of key
+     * counts, comparing every result, the size every few thousand
+     * operations, and for a TwoFourTree its structure and key order at the
+     * end
+     * @return whether every result matched
+     */
+    private static boolean verify(WorkloadTrace trace, Variant variant, int order)
+            throws IOException {
+        Dictionary dictionary = variant.create(order);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        int modelSize = 0;
+        String mismatch = null;
+        int i = 0;
+        for (; i < trace.size() && mismatch == null; i++) {
+            byte op = trace.op(i);
+            Integer key = trace.key(i);
+            int count = model.getOrDefault(key, 0);
+            if (op == WorkloadTrace.INSERT) {
+                dictionary.insertElement(key, key);
+                model.put(key, count + 1);
+                modelSize++;
+            }
+            else if (op == WorkloadTrace.FIND) {
+                Object found = elementOf(dictionary.findElement(key));
+                if ((count > 0) ? !key.equals(found) : found != null) {
+                    mismatch = "found " + found + ", expected " + ((count > 0) ? key : null);
+                }
+            }
+            else {
+                Object removed;
+                try {
+                    removed = dictionary.removeElement(key);
+                }
+                catch (ElementNotFoundException e) {
+                    removed = null;
+                }
+                if ((count > 0) ? !key.equals(removed) : removed != null) {
+                    mismatch = "removed " + removed + ", expected "
+                            + ((count > 0) ? key : "ElementNotFoundException");
+                }
+                if (count > 1) {
+                    model.put(key, count - 1);
+                    modelSize--;
+                }
+                else if (count == 1) {
+                    model.remove(key);
+                    modelSize--;
+                }
+            }
+            if (mismatch == null && (i % SIZE_CHECK_INTERVAL == 0 || i == trace.size() - 1)
+                    && dictionary.size() != modelSize) {
+                mismatch = "size " + dictionary.size() + ", expected " + modelSize;
+            }
+        }
+        if (mismatch == null && dictionary instanceof TwoFourTree) {
+            mismatch = checkContents((TwoFourTree) dictionary, model);
+        }
+        if (dictionary instanceof Closeable) {
+            ((Closeable) dictionary).close();
+        }
+        if (mismatch != null) {
+            System.out.printf("%s: FAILED at operation %d (%s %d): %s%n", variant, i - 1,
+                    WorkloadTrace.name(trace.op(i - 1)), trace.key(i - 1), mismatch);
+            return false;
+        }
+        System.out.printf("%s: %d operations match TreeMap%n", variant, trace.size());
+        return true;
+    }
+
+    // checks the structure of the tree, then that a cursor visits the
+    // model's keys
+    private static String checkContents(TwoFourTree tree, TreeMap<Integer, Integer> model) {
+        String problem = tree.checkStructure();
+        if (problem != null) {
+            return "broken structure: " + problem;
+        }
+        TwoFourTreeCursor cursor = tree.cursor();
+        for (Map.Entry<Integer, Integer> entry : model.entrySet()) {
+            for (int copy = 0; copy < entry.getValue(); copy++) {
+                if (!cursor.next() || !entry.getKey().equals(cursor.key())) {
+                    return "iteration out of order near key " + entry.getKey();
+                }
+            }
+        }
+        if (cursor.next()) {
+            return "iteration has extra key " + cursor.key();
+        }
+        return null;
+    }
+
+    // TwoFourTree.findElement hands back the Item rather than its element
+    private static Object elementOf(Object found) {
+        return (found instanceof Item) ? ((Item) found).element() : found;
+    }
+
+    private static Integer[] boxedKeys(WorkloadTrace trace) {
+        int[] keys = new int[trace.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = trace.key(i);
+        }
+        return KeyDistribution.boxed(keys);
+    }
+}
@@ -0,0 +1,30 @@
+package termproject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface for writing keys and elements to a byte stream and reading
+ * them back, used by DurableTwoFourTree for its log and snapshot files.
+ *
+ * @version 1.0
+ * File: Codec.java
+ */
+public interface Codec {
+
+    /**
+     * Writes an object to the stream
+     * @param value to be written
+     * @param out stream to write to
+     * @exception InvalidObjectException if the codec cannot write value
+     */
+    public void write(Object value, DataOutput out) throws IOException;
+
+    /**
+     * Reads back an object written by write
+     * @param in stream to read from
+     * @return object read
+     */
+    public Object read(DataInput in) throws IOException;
+}
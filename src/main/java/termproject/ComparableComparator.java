@@ -0,0 +1,53 @@
+package termproject;
+
+/**
+ * Comparator that orders keys by their natural ordering, so any key class
+ * implementing java.lang.Comparable can be used in a TwoFourTree without
+ * writing a Comparator for it.
+ *
+ * @version 1.0
+ * File: ComparableComparator.java
+ */
+
+public class ComparableComparator implements Comparator {
+
+    public ComparableComparator() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public int compare (Object obj1, Object obj2) {
+        if ( !isComparable (obj1) || !isComparable (obj2) ) {
+            throw new InvalidObjectException ("Object not comparable");
+        }
+        try {
+            return ((Comparable<Object>) obj1).compareTo (obj2);
+        }
+        catch (ClassCastException e) {
+            throw new InvalidObjectException ("Objects not mutually comparable");
+        }
+    }
+
+    public boolean isLessThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) < 0 );
+    }
+
+    public boolean isLessThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) <= 0 );
+    }
+
+    public boolean isGreaterThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) > 0 );
+    }
+
+    public boolean isGreaterThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) >= 0 );
+    }
+
+    public boolean isEqual (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) == 0 );
+    }
+
+    public boolean isComparable (Object obj) {
+        return obj instanceof Comparable;
+    }
+}
@@ -11,6 +11,19 @@ package termproject;
 
 public interface Comparator {
 
+    /**
+     * Three-way comparison of two keys.  Implementations should override
+     * this; the default answers it with up to two isLessThan calls.
+     * @return negative, zero or positive as obj1 is less than, equal to or
+     * greater than obj2
+     */
+    public default int compare (Object obj1, Object obj2) {
+        if (isLessThan (obj1, obj2)) {
+            return -1;
+        }
+        return isLessThan (obj2, obj1) ? 1 : 0;
+    }
+
     public boolean isLessThan (Object obj1, Object obj2);
 
     public boolean isLessThanOrEqualTo (Object obj1, Object obj2);
@@ -0,0 +1,538 @@
+package termproject;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class defines a thread-safe Two-Four Tree that implements the
+ * Dictionary interface.
+ *
+ * @version 1.0
+ * File: ConcurrentTwoFourTree.java
+ *
+ * Description: Every node carries its own StampedLock latch.  Lookups are
+ * optimistic: they read each node under an optimistic stamp, take the
+ * child's stamp, and then validate the parent's, restarting from the root
+ * if a writer got in between.  After a few failed attempts a lookup falls
+ * back to shared-latch coupling, so it cannot starve.  Writers use
+ * exclusive latch coupling from the root down and restructure top-down:
+ * inserts split full nodes before entering them, removes top up minimal
+ * nodes before entering them.  A node that has been made safe can never
+ * need its parent again, so each writer releases everything above the node
+ * it is working on, and only the path (plus the siblings it borrows from)
+ * is ever locked.  Top-down restructuring needs an odd node order.
+ */
+public class ConcurrentTwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+    // optimistic lookups tried before falling back to shared latches
+    private static final int OPTIMISTIC_ATTEMPTS = 8;
+    private static final Object RETRY = new Object();
+
+    private final Comparator treeComp;
+    private final int maxItems;
+    private final int minItems;
+    private final LongAdder size = new LongAdder();
+    // never null; replaced only by a writer holding the old root's latch
+    private volatile Node treeRoot;
+
+    /**
+     * Sets the comparator to use when comparing keys
+     * @param comp comparator for the keys
+     */
+    public ConcurrentTwoFourTree(Comparator comp) {
+        this(comp, DEFAULT_MAX_ITEMS);
+    }
+
+    /**
+     * Sets the comparator and the order of the tree
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node; odd and at least 3
+     */
+    public ConcurrentTwoFourTree(Comparator comp, int maxItems) {
+        if (maxItems < DEFAULT_MAX_ITEMS || maxItems % 2 == 0) {
+            throw new TwoFourTreeException("Node order must be odd and at least 3");
+        }
+        treeComp = comp;
+        this.maxItems = maxItems;
+        this.minItems = maxItems / 2;
+        treeRoot = new Node(maxItems, true);
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return (int) size.sum();
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present.  Does not block
+     * unless writers keep invalidating the optimistic attempts.
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public Object findElement(Object key) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            Object result = optimisticFind(key);
+            if (result != RETRY) {
+                return result;
+            }
+            Thread.onSpinWait();
+        }
+        return sharedFind(key);
+    }
+
+    private Object optimisticFind(Object key) {
+        Node node = treeRoot;
+        long stamp = node.latch.tryOptimisticRead();
+        if (stamp == 0 || treeRoot != node) {
+            return RETRY;
+        }
+        while (true) {
+            int numItems = node.numItems;
+            if (numItems > maxItems) {
+                return RETRY;
+            }
+            int index = search(node, numItems, key);
+            if (index == Integer.MIN_VALUE) {
+                return RETRY;
+            }
+            if (index >= 0) {
+                Object element = node.elements[index];
+                return node.latch.validate(stamp) ? element : RETRY;
+            }
+            if (node.children == null) {
+                return node.latch.validate(stamp) ? null : RETRY;
+            }
+            Node child = node.children[-index - 1];
+            if (child == null) {
+                return RETRY;
+            }
+            long childStamp = child.latch.tryOptimisticRead();
+            if (childStamp == 0 || !node.latch.validate(stamp)) {
+                return RETRY;
+            }
+            node = child;
+            stamp = childStamp;
+        }
+    }
+
+    private Object sharedFind(Object key) {
+        Node node;
+        long stamp;
+        while (true) {
+            node = treeRoot;
+            stamp = node.latch.readLock();
+            if (treeRoot == node) {
+                break;
+            }
+            node.latch.unlockRead(stamp);
+        }
+        try {
+            while (true) {
+                int index = search(node, node.numItems, key);
+                if (index >= 0) {
+                    return node.elements[index];
+                }
+                if (node.children == null) {
+                    return null;
+                }
+                Node child = node.children[-index - 1];
+                long childStamp = child.latch.readLock();
+                node.latch.unlockRead(stamp);
+                node = child;
+                stamp = childStamp;
+            }
+        }
+        finally {
+            node.latch.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(Object key, Object element) {
+        Node node = lockRoot();
+        Node child = null;
+        try {
+            if (node.numItems == maxItems) {
+                //grow a new root above the full one and split it
+                Node newRoot = new Node(maxItems, false);
+                newRoot.latch.writeLock();
+                newRoot.children[0] = node;
+                splitChild(newRoot, 0, node);
+                treeRoot = newRoot;
+                node.latch.tryUnlockWrite();
+                node = newRoot;
+            }
+            while (node.children != null) {
+                int index = lowerBound(node, key);
+                child = node.children[index];
+                child.latch.writeLock();
+                if (child.numItems == maxItems) {
+                    boolean goRight = treeComp.compare(key, child.keys[minItems]) > 0;
+                    Node sibling = splitChild(node, index, child);
+                    if (goRight) {
+                        sibling.latch.writeLock();
+                        child.latch.tryUnlockWrite();
+                        child = sibling;
+                    }
+                }
+                node.latch.tryUnlockWrite();
+                node = child;
+                child = null;
+            }
+            node.insert(lowerBound(node, key), key, element, null);
+            size.increment();
+        }
+        finally {
+            if (child != null) {
+                child.latch.tryUnlockWrite();
+            }
+            node.latch.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        Node node = lockRoot();
+        try {
+            while (true) {
+                int index = search(node, node.numItems, key);
+                if (node.children == null) {
+                    if (index < 0) {
+                        throw new ElementNotFoundException("Element specified was not found");
+                    }
+                    Object removed = node.elements[index];
+                    node.remove(index);
+                    size.decrement();
+                    return removed;
+                }
+                Node next;
+                if (index >= 0) {
+                    Node left = node.children[index];
+                    left.latch.writeLock();
+                    if (left.numItems > minItems) {
+                        return replaceFromSubtree(node, index, left, true);
+                    }
+                    Node right = node.children[index + 1];
+                    right.latch.writeLock();
+                    if (right.numItems > minItems) {
+                        left.latch.tryUnlockWrite();
+                        return replaceFromSubtree(node, index, right, false);
+                    }
+                    fuse(node, index, left, right);
+                    right.latch.tryUnlockWrite();
+                    next = left;
+                }
+                else {
+                    index = -index - 1;
+                    next = node.children[index];
+                    next.latch.writeLock();
+                    next = topUp(node, index, next);
+                }
+                if (node.numItems == 0) {
+                    treeRoot = next;
+                }
+                node.latch.tryUnlockWrite();
+                node = next;
+            }
+        }
+        finally {
+            node.latch.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Replaces the item at index of target with its in-order predecessor
+     * (or successor), removing that item from the bottom of the subtree.
+     * target stays latched throughout so the index cannot move.
+     * @return the element that was at index
+     */
+    private Object replaceFromSubtree(Node target, int index, Node subtree,
+            boolean predecessor) {
+        Node node = subtree;
+        try {
+            while (node.children != null) {
+                int childIndex = predecessor ? node.numItems : 0;
+                Node child = node.children[childIndex];
+                child.latch.writeLock();
+                child = topUp(node, childIndex, child);
+                node.latch.tryUnlockWrite();
+                node = child;
+            }
+            int from = predecessor ? node.numItems - 1 : 0;
+            Object removed = target.elements[index];
+            target.keys[index] = node.keys[from];
+            target.elements[index] = node.elements[from];
+            node.remove(from);
+            size.decrement();
+            return removed;
+        }
+        finally {
+            node.latch.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Makes sure a latched child has an item to spare before a remove
+     * enters it, borrowing from a sibling or fusing with one
+     * @return the latched node to continue in; after a fusion with the left
+     * sibling this is the sibling, and child has been released
+     */
+    private Node topUp(Node parent, int index, Node child) {
+        if (child.numItems > minItems) {
+            return child;
+        }
+        Node left = null;
+        if (index > 0) {
+            left = parent.children[index - 1];
+            left.latch.writeLock();
+            if (left.numItems > minItems) {
+                rotateRight(parent, index - 1, left, child);
+                left.latch.tryUnlockWrite();
+                return child;
+            }
+        }
+        if (index < parent.numItems) {
+            Node right = parent.children[index + 1];
+            right.latch.writeLock();
+            if (right.numItems > minItems) {
+                rotateLeft(parent, index, child, right);
+                right.latch.tryUnlockWrite();
+                if (left != null) {
+                    left.latch.tryUnlockWrite();
+                }
+                return child;
+            }
+            if (left == null) {
+                fuse(parent, index, child, right);
+                right.latch.tryUnlockWrite();
+                return child;
+            }
+            right.latch.tryUnlockWrite();
+        }
+        fuse(parent, index - 1, left, child);
+        child.latch.tryUnlockWrite();
+        return left;
+    }
+
+    /**
+     * Latches the current root, retrying if it was replaced meanwhile
+     */
+    private Node lockRoot() {
+        while (true) {
+            Node root = treeRoot;
+            root.latch.writeLock();
+            if (treeRoot == root) {
+                return root;
+            }
+            root.latch.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Splits a full child around its middle item, which moves up into the
+     * parent at index; the parent is not full
+     * @return the new right sibling, reachable only through the parent
+     */
+    private Node splitChild(Node parent, int index, Node child) {
+        Node sibling = new Node(maxItems, child.children == null);
+        int moved = maxItems - minItems - 1;
+        System.arraycopy(child.keys, minItems + 1, sibling.keys, 0, moved);
+        System.arraycopy(child.elements, minItems + 1, sibling.elements, 0, moved);
+        if (child.children != null) {
+            System.arraycopy(child.children, minItems + 1, sibling.children, 0, moved + 1);
+            for (int i = minItems + 1; i <= maxItems; i++) {
+                child.children[i] = null;
+            }
+        }
+        sibling.numItems = moved;
+        parent.insert(index, child.keys[minItems], child.elements[minItems], sibling);
+        for (int i = minItems; i < maxItems; i++) {
+            child.keys[i] = null;
+            child.elements[i] = null;
+        }
+        child.numItems = minItems;
+        return sibling;
+    }
+
+    // moves the parent item at keyIndex down into right, and left's last up
+    private void rotateRight(Node parent, int keyIndex, Node left, Node right) {
+        Node moved = (left.children == null) ? null : left.children[left.numItems];
+        if (right.children != null) {
+            System.arraycopy(right.children, 0, right.children, 1, right.numItems + 1);
+            right.children[0] = moved;
+        }
+        right.insertKey(0, parent.keys[keyIndex], parent.elements[keyIndex]);
+        int last = left.numItems - 1;
+        parent.keys[keyIndex] = left.keys[last];
+        parent.elements[keyIndex] = left.elements[last];
+        if (left.children != null) {
+            left.children[last + 1] = null;
+        }
+        left.keys[last] = null;
+        left.elements[last] = null;
+        left.numItems--;
+    }
+
+    // moves the parent item at keyIndex down into left, and right's first up
+    private void rotateLeft(Node parent, int keyIndex, Node left, Node right) {
+        int end = left.numItems;
+        left.keys[end] = parent.keys[keyIndex];
+        left.elements[end] = parent.elements[keyIndex];
+        if (left.children != null) {
+            left.children[end + 1] = right.children[0];
+            System.arraycopy(right.children, 1, right.children, 0, right.numItems);
+            right.children[right.numItems] = null;
+        }
+        left.numItems++;
+        parent.keys[keyIndex] = right.keys[0];
+        parent.elements[keyIndex] = right.elements[0];
+        right.remove(0);
+    }
+
+    // pulls the parent item at keyIndex down between two minimal siblings
+    // and fuses them into left
+    private void fuse(Node parent, int keyIndex, Node left, Node right) {
+        int end = left.numItems;
+        left.keys[end] = parent.keys[keyIndex];
+        left.elements[end] = parent.elements[keyIndex];
+        System.arraycopy(right.keys, 0, left.keys, end + 1, right.numItems);
+        System.arraycopy(right.elements, 0, left.elements, end + 1, right.numItems);
+        if (left.children != null) {
+            System.arraycopy(right.children, 0, left.children, end + 1, right.numItems + 1);
+        }
+        left.numItems += right.numItems + 1;
+        System.arraycopy(parent.children, keyIndex + 2, parent.children, keyIndex + 1,
+                parent.numItems - keyIndex - 1);
+        parent.children[parent.numItems] = null;
+        parent.remove(keyIndex);
+    }
+
+    /**
+     * Finds key among the first numItems keys of a node
+     * @return index of the key, (-(insertion point) - 1) if not present, or
+     * Integer.MIN_VALUE if a key slot was caught mid-update
+     */
+    private int search(Node node, int numItems, Object key) {
+        Object[] keys = node.keys;
+        int low = 0;
+        int high = numItems;
+        if (high > BINARY_SEARCH_THRESHOLD) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Object k = keys[mid];
+                if (k == null) {
+                    return Integer.MIN_VALUE;
+                }
+                int result = treeComp.compare(k, key);
+                if (result == 0) {
+                    return mid;
+                }
+                if (result > 0) {
+                    high = mid;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return -low - 1;
+        }
+        for (; low < high; low++) {
+            Object k = keys[low];
+            if (k == null) {
+                return Integer.MIN_VALUE;
+            }
+            int result = treeComp.compare(k, key);
+            if (result == 0) {
+                return low;
+            }
+            if (result > 0) {
+                break;
+            }
+        }
+        return -low - 1;
+    }
+
+    // first key greater than or equal to key; only called under a latch
+    private int lowerBound(Node node, Object key) {
+        int low = 0;
+        int high = node.numItems;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (treeComp.compare(node.keys[mid], key) >= 0) {
+                high = mid;
+            }
+            else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Node of a ConcurrentTwoFourTree.  Top-down restructuring means a node
+     * never holds more than maxItems items, even briefly.
+     */
+    static final class Node {
+        final StampedLock latch = new StampedLock();
+        int numItems = 0;
+        final Object[] keys;
+        final Object[] elements;
+        final Node[] children;
+
+        Node(int maxItems, boolean leaf) {
+            keys = new Object[maxItems];
+            elements = new Object[maxItems];
+            children = leaf ? null : new Node[maxItems + 1];
+        }
+
+        // inserts a key with the child to its right
+        void insert(int index, Object key, Object element, Node rightChild) {
+            if (children != null) {
+                System.arraycopy(children, index + 1, children, index + 2, numItems - index);
+                children[index + 1] = rightChild;
+            }
+            insertKey(index, key, element);
+        }
+
+        void insertKey(int index, Object key, Object element) {
+            int moved = numItems - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(elements, index, elements, index + 1, moved);
+            keys[index] = key;
+            elements[index] = element;
+            numItems++;
+        }
+
+        // removes a key without touching the children
+        void remove(int index) {
+            int moved = numItems - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(elements, index + 1, elements, index, moved);
+            numItems--;
+            keys[numItems] = null;
+            elements[numItems] = null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package termproject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comparator that counts the comparisons it passes on to another one.
+ *
+ * @version 1.0
+ * File: CountingComparator.java
+ *
+ * Description: Every call is forwarded to the wrapped comparator and adds
+ * one to a LongAdder, so the count stays cheap even when several threads
+ * compare at once.  TwoFourTree puts one in front of its own comparator
+ * while metrics are on.
+ */
+
+public class CountingComparator implements Comparator {
+
+    private final Comparator base;
+    private final LongAdder count;
+
+    /**
+     * Wraps a comparator
+     * @param base comparator to forward to
+     * @param count adder that receives one per comparison
+     */
+    public CountingComparator (Comparator base, LongAdder count) {
+        this.base = base;
+        this.count = count;
+    }
+
+    /**
+     * Returns the wrapped comparator
+     * @return comparator calls are forwarded to
+     */
+    public Comparator getBase () {
+        return base;
+    }
+
+    public int compare (Object obj1, Object obj2) {
+        count.increment();
+        return base.compare (obj1, obj2);
+    }
+
+    public boolean isLessThan (Object obj1, Object obj2) {
+        count.increment();
+        return base.isLessThan (obj1, obj2);
+    }
+
+    public boolean isLessThanOrEqualTo (Object obj1, Object obj2) {
+        count.increment();
+        return base.isLessThanOrEqualTo (obj1, obj2);
+    }
+
+    public boolean isGreaterThan (Object obj1, Object obj2) {
+        count.increment();
+        return base.isGreaterThan (obj1, obj2);
+    }
+
+    public boolean isGreaterThanOrEqualTo (Object obj1, Object obj2) {
+        count.increment();
+        return base.isGreaterThanOrEqualTo (obj1, obj2);
+    }
+
+    public boolean isEqual (Object obj1, Object obj2) {
+        count.increment();
+        return base.isEqual (obj1, obj2);
+    }
+
+    public boolean isComparable (Object obj) {
+        return base.isComparable (obj);
+    }
+}
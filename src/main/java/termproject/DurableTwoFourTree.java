@@ -0,0 +1,639 @@
+package termproject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * This class defines a Dictionary that survives crashes, by logging every
+ * change before it returns and writing snapshots in the background.
+ *
+ * @version 1.0
+ * File: DurableTwoFourTree.java
+ *
+ * Description: Entries live in a PersistentTwoFourTree.  Each insert or
+ * remove is applied to it and appended to a write-ahead log as a record
+ * carrying its own length and CRC, and the call returns once the record is
+ * on disk.  Writes use group commit: while one caller forces the log, the
+ * others queue their records behind it, and the next caller to need a
+ * force writes all of them with a single fsync.
+ *
+ * Once the log grows past a limit, the tree takes a constant-time snapshot
+ * and switches to a new log generation, and a background thread writes the
+ * snapshot to a file while writers carry on.  Snapshot n holds everything
+ * logged before log n.  Recovery loads the newest complete snapshot, then
+ * replays the logs from its generation on, stopping at the first torn or
+ * corrupt record at the end of the last log.
+ */
+public class DurableTwoFourTree implements Dictionary, Closeable {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+    private static final long SNAPSHOT_MAGIC = 0x3234534e41505348L;
+    private static final int MAX_RECORD_BYTES = 1 << 26;
+    private static final byte OP_INSERT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String LOG_PREFIX = "log-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final Codec keyCodec;
+    private final Codec elementCodec;
+    private final long checkpointBytes;
+    private final PersistentTwoFourTree tree;
+
+    // everything below is guarded by this
+    private long generation;
+    private FileChannel log;
+    private long logBytes;
+    // records appended but not yet written; swapped with spare by the
+    // caller that writes them
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private long appendedSeq = 0;
+    private long durableSeq = 0;
+    private boolean syncing = false;
+    private IOException logFailure;
+    private IOException snapshotFailure;
+    private Thread checkpointer;
+    private boolean closed = false;
+
+    /**
+     * Opens the tree kept in a directory, recovering its contents
+     * @param directory holding the snapshot and log files; created if needed
+     * @param comp comparator for the keys
+     * @param keyCodec codec for the keys
+     * @param elementCodec codec for the elements
+     * @exception IOException if the files cannot be read or are corrupt
+     */
+    public DurableTwoFourTree(Path directory, Comparator comp, Codec keyCodec,
+            Codec elementCodec) throws IOException {
+        this(directory, comp, DEFAULT_MAX_ITEMS, keyCodec, elementCodec,
+                DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Opens the tree kept in a directory, recovering its contents
+     * @param directory holding the snapshot and log files; created if needed
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node; at least 3
+     * @param keyCodec codec for the keys
+     * @param elementCodec codec for the elements
+     * @param checkpointBytes log size that starts a background snapshot
+     * @exception IOException if the files cannot be read or are corrupt
+     */
+    public DurableTwoFourTree(Path directory, Comparator comp, int maxItems,
+            Codec keyCodec, Codec elementCodec, long checkpointBytes) throws IOException {
+        this.directory = directory;
+        this.keyCodec = keyCodec;
+        this.elementCodec = elementCodec;
+        this.checkpointBytes = checkpointBytes;
+        tree = new PersistentTwoFourTree(comp, maxItems);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public synchronized int size() {
+        return tree.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public synchronized Object findElement(Object key) {
+        return tree.findElement(key);
+    }
+
+    /**
+     * Inserts provided element into the Dictionary.  Returns once the
+     * change is in the log on disk.
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(Object key, Object element) {
+        long seq;
+        synchronized (this) {
+            checkOpen();
+            //encode first, so a key the codec refuses changes nothing
+            byte[] bytes = encode(OP_INSERT, key, element);
+            tree.insertElement(key, element);
+            seq = append(bytes);
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object.  Returns once the change is
+     * in the log on disk.
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        long seq;
+        Object removed;
+        synchronized (this) {
+            checkOpen();
+            byte[] bytes = encode(OP_REMOVE, key, null);
+            removed = tree.removeElement(key);
+            seq = append(bytes);
+        }
+        awaitDurable(seq);
+        return removed;
+    }
+
+    /**
+     * Writes a snapshot of the current contents and discards the log it
+     * replaces, waiting until both are done
+     * @exception IOException if the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        awaitCheckpointer();
+        TwoFourTreeSnapshot view;
+        long snapshotGeneration;
+        synchronized (this) {
+            checkOpen();
+            view = rotate();
+            snapshotGeneration = generation;
+        }
+        writeSnapshot(view, snapshotGeneration);
+    }
+
+    /**
+     * Waits for a background snapshot, then writes any queued records and
+     * closes the log
+     * @exception IOException if the log cannot be written or closed, or a
+     * background snapshot failed
+     */
+    public void close() throws IOException {
+        awaitCheckpointer();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            boolean interrupted = false;
+            while (syncing) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            closed = true;
+            try {
+                if (logFailure == null) {
+                    writeFully(log, pending);
+                    log.force(false);
+                }
+            }
+            finally {
+                log.close();
+            }
+            if (snapshotFailure != null) {
+                throw snapshotFailure;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new TwoFourTreeException("Tree is closed");
+        }
+        if (logFailure != null) {
+            throw new TwoFourTreeException("Write-ahead log failed: " + logFailure.getMessage());
+        }
+    }
+
+    /**
+     * Encodes one log record: the operation, the key and, for an insert,
+     * the element
+     */
+    private byte[] encode(byte op, Object key, Object element) {
+        record.reset();
+        try {
+            recordOut.writeByte(op);
+            keyCodec.write(key, recordOut);
+            if (op == OP_INSERT) {
+                elementCodec.write(element, recordOut);
+            }
+        }
+        catch (IOException e) {
+            throw new TwoFourTreeException("Cannot encode log record: " + e.getMessage());
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Queues a record behind its length and CRC, and starts a background
+     * snapshot if the log has grown past its limit
+     * @return sequence number of the record
+     */
+    private long append(byte[] bytes) {
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        writeInt(pending, bytes.length);
+        writeInt(pending, (int) crc.getValue());
+        pending.write(bytes, 0, bytes.length);
+        logBytes += 8 + bytes.length;
+        long seq = ++appendedSeq;
+        if (logBytes >= checkpointBytes && (checkpointer == null || !checkpointer.isAlive())) {
+            startCheckpoint();
+        }
+        return seq;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk.
+     * If no other caller is forcing the log, this one writes every queued
+     * record and forces them all at once.
+     */
+    private void awaitDurable(long seq) {
+        FileChannel channel;
+        ByteArrayOutputStream batch;
+        long target;
+        synchronized (this) {
+            boolean interrupted = false;
+            while (durableSeq < seq && syncing && logFailure == null) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (logFailure != null) {
+                throw new TwoFourTreeException("Write-ahead log failed: " + logFailure.getMessage());
+            }
+            if (durableSeq >= seq) {
+                return;
+            }
+            syncing = true;
+            batch = pending;
+            pending = spare;
+            spare = null;
+            target = appendedSeq;
+            channel = log;
+        }
+
+        IOException error = null;
+        try {
+            writeFully(channel, batch);
+            channel.force(false);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            batch.reset();
+            spare = batch;
+            if (error == null) {
+                durableSeq = target;
+            }
+            else {
+                logFailure = error;
+            }
+            syncing = false;
+            notifyAll();
+        }
+        if (error != null) {
+            throw new TwoFourTreeException("Write-ahead log failed: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Finishes the current log and starts the next generation, returning a
+     * snapshot of everything the finished logs hold.  Called holding the
+     * lock.
+     */
+    private TwoFourTreeSnapshot rotate() throws IOException {
+        boolean interrupted = false;
+        while (syncing) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writeFully(log, pending);
+            log.force(false);
+            log.close();
+        }
+        catch (IOException e) {
+            logFailure = e;
+            throw e;
+        }
+        pending.reset();
+        durableSeq = appendedSeq;
+        notifyAll();
+
+        generation++;
+        log = openLog(generation, 0);
+        logBytes = 0;
+        return tree.snapshot();
+    }
+
+    /**
+     * Rotates the log and writes the snapshot on a background thread.
+     * Called holding the lock.
+     */
+    private void startCheckpoint() {
+        TwoFourTreeSnapshot view;
+        try {
+            view = rotate();
+        }
+        catch (IOException e) {
+            return;
+        }
+        long snapshotGeneration = generation;
+        checkpointer = new Thread(() -> {
+            try {
+                writeSnapshot(view, snapshotGeneration);
+            }
+            catch (IOException e) {
+                synchronized (DurableTwoFourTree.this) {
+                    snapshotFailure = e;
+                }
+            }
+        }, "TwoFourTree checkpoint");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+    }
+
+    private void awaitCheckpointer() {
+        Thread running;
+        synchronized (this) {
+            running = checkpointer;
+        }
+        if (running == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (running.isAlive()) {
+            try {
+                running.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a snapshot file under a temporary name, forces it, renames it
+     * into place and then deletes the snapshots and logs it replaces
+     */
+    private void writeSnapshot(TwoFourTreeSnapshot view, long snapshotGeneration)
+            throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + TEMP_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(view.size());
+            IOException[] error = new IOException[1];
+            view.forEach((key, element) -> {
+                if (error[0] == null) {
+                    try {
+                        keyCodec.write(key, out);
+                        elementCodec.write(element, out);
+                    }
+                    catch (IOException e) {
+                        error[0] = e;
+                    }
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration),
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        for (Path old : listGenerations(SNAPSHOT_PREFIX).headMap(snapshotGeneration).values()) {
+            Files.deleteIfExists(old);
+        }
+        for (Path old : listGenerations(LOG_PREFIX).headMap(snapshotGeneration).values()) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot, replays the logs written after it, and
+     * opens the last log for appending
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                Files.delete(temp);
+            }
+        }
+        TreeMap<Long, Path> snapshots = listGenerations(SNAPSHOT_PREFIX);
+        long base = 0;
+        if (!snapshots.isEmpty()) {
+            base = snapshots.lastKey();
+            loadSnapshot(snapshots.lastEntry().getValue());
+        }
+
+        TreeMap<Long, Path> logs = listGenerations(LOG_PREFIX);
+        generation = base;
+        long validBytes = 0;
+        for (Long logGeneration : logs.tailMap(base).keySet()) {
+            Path file = logs.get(logGeneration);
+            long length = Files.size(file);
+            validBytes = replayLog(file);
+            if (validBytes < length && logGeneration < logs.lastKey()) {
+                throw new IOException("Corrupt record in " + file);
+            }
+            generation = logGeneration;
+        }
+        log = openLog(generation, validBytes);
+        logBytes = validBytes;
+        for (Path old : logs.headMap(base).values()) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private void loadSnapshot(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(in, 1 << 16), new CRC32());
+            DataInputStream data = new DataInputStream(checked);
+            if (data.readLong() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                Object key = keyCodec.read(data);
+                tree.insertElement(key, elementCodec.read(data));
+            }
+            long expected = checked.getChecksum().getValue();
+            if (data.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+        }
+    }
+
+    /**
+     * Applies the records of one log to the tree
+     * @return number of bytes of whole, valid records at the front of the log
+     */
+    private long replayLog(Path file) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                int expected;
+                byte[] bytes;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    expected = in.readInt();
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                }
+                catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != expected) {
+                    break;
+                }
+                apply(bytes);
+                valid += 8 + length;
+            }
+        }
+        return valid;
+    }
+
+    private void apply(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte op = in.readByte();
+        Object key = keyCodec.read(in);
+        if (op == OP_INSERT) {
+            tree.insertElement(key, elementCodec.read(in));
+        }
+        else if (op == OP_REMOVE) {
+            tree.removeElement(key);
+        }
+        else {
+            throw new IOException("Unknown log operation " + op);
+        }
+    }
+
+    /**
+     * Opens a log file for appending, cutting off anything past validBytes
+     */
+    private FileChannel openLog(long logGeneration, long validBytes) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOG_PREFIX + logGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validBytes);
+        channel.position(validBytes);
+        syncDirectory();
+        return channel;
+    }
+
+    /**
+     * Lists the files named prefix followed by a generation number
+     */
+    private TreeMap<Long, Path> listGenerations(String prefix) throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                try {
+                    found.put(Long.parseLong(suffix), file);
+                }
+                catch (NumberFormatException e) {
+                    //not one of ours
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Forces the directory itself, so created and renamed files survive a
+     * crash.  Not every platform can open a directory; there it is skipped.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            //best effort
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteArrayOutputStream bytes)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        bytes.reset();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,25 @@
+package termproject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codec for Integer objects, written as four bytes.
+ *
+ * @version 1.0
+ * File: IntegerCodec.java
+ */
+public class IntegerCodec implements Codec {
+
+    public void write(Object value, DataOutput out) throws IOException {
+        if (!(value instanceof Integer)) {
+            throw new InvalidObjectException("Object not an Integer");
+        }
+        out.writeInt((Integer) value);
+    }
+
+    public Object read(DataInput in) throws IOException {
+        return in.readInt();
+    }
+}
@@ -14,30 +14,34 @@ public class IntegerComparator implements Comparator {
     public IntegerComparator() {
     }
 
-    public boolean isLessThan (Object obj1, Object obj2) {
-        if ( !isComparable (obj1) || !isComparable (obj2) ) {
+    public int compare (Object obj1, Object obj2) {
+        // the casts do the type check, so isComparable is not called per key
+        try {
+            return Integer.compare ((Integer) obj1, (Integer) obj2);
+        }
+        catch (ClassCastException | NullPointerException e) {
             throw new InvalidObjectException ("Object not an integer");
         }
+    }
 
-	Integer myInt1 = (Integer) obj1;
-        Integer myInt2 = (Integer) obj2;
-        return ( myInt1.intValue() < myInt2.intValue() );
+    public boolean isLessThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) < 0 );
     }
 
     public boolean isLessThanOrEqualTo (Object obj1, Object obj2) {
-        return ( ! isLessThan (obj2, obj1) );
+        return ( compare (obj1, obj2) <= 0 );
     }
 
     public boolean isGreaterThan (Object obj1, Object obj2) {
-        return ( isLessThan (obj2, obj1) );
+        return ( compare (obj1, obj2) > 0 );
     }
 
     public boolean isGreaterThanOrEqualTo (Object obj1, Object obj2) {
-        return ( ! isLessThan (obj1, obj2) );
+        return ( compare (obj1, obj2) >= 0 );
     }
 
     public boolean isEqual (Object obj1, Object obj2) {
-        return ( (! isLessThan (obj1, obj2)) && (! isLessThan (obj2, obj1)) );
+        return ( compare (obj1, obj2) == 0 );
     }
 
     public boolean isComparable (Object obj) {
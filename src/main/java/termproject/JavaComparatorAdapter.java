@@ -0,0 +1,94 @@
+package termproject;
+
+/**
+ * Adapts a java.util.Comparator to the Comparator used by TwoFourTree.
+ *
+ * @version 1.0
+ * File: JavaComparatorAdapter.java
+ *
+ * Description: When built with a key class, the adapter is type-specialized:
+ * compare casts straight to that class and lets the cast do the type check,
+ * instead of calling isComparable on both keys every time.  Without a key
+ * class every non-null key is considered comparable and mismatches surface
+ * when the wrapped comparator throws.
+ */
+
+public class JavaComparatorAdapter<T> implements Comparator {
+
+    private final java.util.Comparator<? super T> comparator;
+    private final Class<T> keyType;
+
+    /**
+     * Wraps a comparator that accepts any key
+     * @param comparator to delegate to
+     */
+    public JavaComparatorAdapter(java.util.Comparator<? super T> comparator) {
+        this (comparator, null);
+    }
+
+    /**
+     * Wraps a comparator for keys of one class
+     * @param comparator to delegate to
+     * @param keyType class every key must be an instance of
+     */
+    public JavaComparatorAdapter(java.util.Comparator<? super T> comparator,
+            Class<T> keyType) {
+        if (comparator == null) {
+            throw new InvalidObjectException ("Comparator must not be null");
+        }
+        this.comparator = comparator;
+        this.keyType = keyType;
+    }
+
+    /**
+     * Returns a type-specialized adapter for the natural ordering of a key
+     * class
+     * @param keyType class every key must be an instance of
+     * @return adapter ordering keys by compareTo
+     */
+    public static <T extends Comparable<? super T>> JavaComparatorAdapter<T>
+            naturalOrder(Class<T> keyType) {
+        return new JavaComparatorAdapter<T> (
+                java.util.Comparator.<T>naturalOrder(), keyType);
+    }
+
+    @SuppressWarnings("unchecked")
+    public int compare (Object obj1, Object obj2) {
+        try {
+            if (keyType != null) {
+                return comparator.compare (keyType.cast (obj1), keyType.cast (obj2));
+            }
+            return comparator.compare ((T) obj1, (T) obj2);
+        }
+        catch (ClassCastException | NullPointerException e) {
+            throw new InvalidObjectException ("Object not comparable by this comparator");
+        }
+    }
+
+    public boolean isLessThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) < 0 );
+    }
+
+    public boolean isLessThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) <= 0 );
+    }
+
+    public boolean isGreaterThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) > 0 );
+    }
+
+    public boolean isGreaterThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) >= 0 );
+    }
+
+    public boolean isEqual (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) == 0 );
+    }
+
+    public boolean isComparable (Object obj) {
+        if (keyType != null) {
+            return keyType.isInstance (obj);
+        }
+        return obj != null;
+    }
+}
@@ -0,0 +1,408 @@
+package termproject;
+
+import java.util.Arrays;
+
+/**
+ * This class defines a Two-Four Tree specialized for primitive long keys.
+ *
+ * @version 1.0
+ * File: LongTwoFourTree.java
+ *
+ * Description: Same dictionary behavior as TwoFourTree, but every node keeps
+ * its keys in a long[] next to its element and child arrays, so there are no
+ * Item objects and no boxed keys.  Leaves do not allocate a child array at
+ * all.  Nodes carry no parent pointer; insert and remove remember the path
+ * they took in two reusable arrays instead, so findElement never allocates.
+ * The long overloads are the fast path; the Object overloads from Dictionary
+ * accept Long or Integer keys and unbox once at the door.
+ */
+public class LongTwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+
+    private final int maxItems;
+    private final int minItems;
+    private int size = 0;
+    private Node treeRoot = null;
+
+    // path remembered by insert and remove; pathIndexes[d] is the child of
+    // pathNodes[d] that the descent went into
+    private Node[] pathNodes = new Node[16];
+    private int[] pathIndexes = new int[16];
+
+    /**
+     * Creates an empty tree holding at most three keys per node
+     */
+    public LongTwoFourTree() {
+        this(DEFAULT_MAX_ITEMS);
+    }
+
+    /**
+     * Creates an empty tree holding at most maxItems keys per node
+     * @param maxItems maximum number of keys in a node; at least 3
+     */
+    public LongTwoFourTree(int maxItems) {
+        if (maxItems < 3) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
+        this.maxItems = maxItems;
+        this.minItems = (maxItems + 2) / 2 - 1;
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public Object findElement(long key) {
+        Node node = treeRoot;
+        while (node != null) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return node.elements[index];
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if key is present in the tree
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(long key) {
+        Node node = treeRoot;
+        while (node != null) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return true;
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return false;
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(long key, Object element) {
+        if (treeRoot == null) {
+            treeRoot = new Node(maxItems, true);
+        }
+        Node node = treeRoot;
+        int depth = 0;
+        while (node.children != null) {
+            int index = lowerBound(node, key);
+            pushPath(depth++, node, index);
+            node = node.children[index];
+        }
+        node.insert(lowerBound(node, key), key, element);
+        size++;
+
+        while (node.numItems > maxItems) {
+            node = splitNode(node, depth);
+            depth--;
+        }
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(long key) throws ElementNotFoundException {
+        Node node = treeRoot;
+        int depth = 0;
+        int index = -1;
+        while (node != null) {
+            index = search(node, key);
+            if (index >= 0) {
+                break;
+            }
+            if (node.children == null) {
+                node = null;
+                break;
+            }
+            pushPath(depth++, node, -index - 1);
+            node = node.children[-index - 1];
+        }
+        if (node == null) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+
+        Object removed = node.elements[index];
+        if (node.children != null) {
+            // swap with the in-order predecessor, which is always in a leaf
+            Node found = node;
+            pushPath(depth++, node, index);
+            node = node.children[index];
+            while (node.children != null) {
+                pushPath(depth++, node, node.numItems);
+                node = node.children[node.numItems];
+            }
+            int last = node.numItems - 1;
+            found.keys[index] = node.keys[last];
+            found.elements[index] = node.elements[last];
+            node.remove(last);
+        }
+        else {
+            node.remove(index);
+        }
+        size--;
+
+        while (depth > 0 && node.numItems < minItems) {
+            depth--;
+            node = fixUnderflow(pathNodes[depth], pathIndexes[depth]);
+        }
+        if (treeRoot.numItems == 0) {
+            treeRoot = (treeRoot.children == null) ? null : treeRoot.children[0];
+        }
+        return removed;
+    }
+
+    public Object findElement(Object key) {
+        return findElement(longKey(key));
+    }
+
+    public void insertElement(Object key, Object element) {
+        insertElement(longKey(key), element);
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        return removeElement(longKey(key));
+    }
+
+    private static long longKey(Object key) {
+        if (!(key instanceof Long) && !(key instanceof Integer)) {
+            throw new InvalidObjectException("Object not a long");
+        }
+        return ((Number) key).longValue();
+    }
+
+    /**
+     * Splits an overflowed node in two, pushing its middle key into the
+     * parent found on the path (or into a new root)
+     * @param node that holds maxItems + 1 keys
+     * @param depth of node on the remembered path
+     * @return the parent, which may now overflow in turn
+     */
+    private Node splitNode(Node node, int depth) {
+        int mid = (maxItems + 1) / 2;
+        Node sibling = new Node(maxItems, node.children == null);
+        int moved = node.numItems - mid - 1;
+        System.arraycopy(node.keys, mid + 1, sibling.keys, 0, moved);
+        System.arraycopy(node.elements, mid + 1, sibling.elements, 0, moved);
+        if (node.children != null) {
+            System.arraycopy(node.children, mid + 1, sibling.children, 0, moved + 1);
+            Arrays.fill(node.children, mid + 1, node.numItems + 1, null);
+        }
+        sibling.numItems = moved;
+
+        long midKey = node.keys[mid];
+        Object midElement = node.elements[mid];
+        Arrays.fill(node.elements, mid, node.numItems, null);
+        node.numItems = mid;
+
+        Node parent;
+        int index;
+        if (depth == 0) {
+            parent = new Node(maxItems, false);
+            parent.children[0] = node;
+            treeRoot = parent;
+            index = 0;
+        }
+        else {
+            parent = pathNodes[depth - 1];
+            index = pathIndexes[depth - 1];
+        }
+        parent.insert(index, midKey, midElement);
+        parent.children[index + 1] = sibling;
+        return parent;
+    }
+
+    /**
+     * Restores the minimum fill of a child, first by borrowing from an
+     * adjacent sibling and otherwise by fusing it with one
+     * @param parent of the underflowed node
+     * @param index of the underflowed node among the parent's children
+     * @return the parent, which may now underflow in turn
+     */
+    private Node fixUnderflow(Node parent, int index) {
+        Node node = parent.children[index];
+        Node left = (index > 0) ? parent.children[index - 1] : null;
+        Node right = (index < parent.numItems) ? parent.children[index + 1] : null;
+
+        if (left != null && left.numItems > minItems) {
+            if (node.children != null) {
+                System.arraycopy(node.children, 0, node.children, 1, node.numItems + 1);
+                node.children[0] = left.children[left.numItems];
+                left.children[left.numItems] = null;
+            }
+            node.insertKey(0, parent.keys[index - 1], parent.elements[index - 1]);
+            int last = left.numItems - 1;
+            parent.keys[index - 1] = left.keys[last];
+            parent.elements[index - 1] = left.elements[last];
+            left.elements[last] = null;
+            left.numItems--;
+        }
+        else if (right != null && right.numItems > minItems) {
+            int end = node.numItems;
+            node.keys[end] = parent.keys[index];
+            node.elements[end] = parent.elements[index];
+            if (node.children != null) {
+                node.children[end + 1] = right.children[0];
+            }
+            node.numItems++;
+            parent.keys[index] = right.keys[0];
+            parent.elements[index] = right.elements[0];
+            if (right.children != null) {
+                System.arraycopy(right.children, 1, right.children, 0, right.numItems);
+                right.children[right.numItems] = null;
+            }
+            right.remove(0);
+        }
+        else if (left != null) {
+            fuse(parent, index - 1);
+        }
+        else {
+            fuse(parent, index);
+        }
+        return parent;
+    }
+
+    /**
+     * Fuses the children either side of a parent key into the left child,
+     * pulling the parent key down between them
+     */
+    private void fuse(Node parent, int keyIndex) {
+        Node left = parent.children[keyIndex];
+        Node right = parent.children[keyIndex + 1];
+        int end = left.numItems;
+        left.keys[end] = parent.keys[keyIndex];
+        left.elements[end] = parent.elements[keyIndex];
+        System.arraycopy(right.keys, 0, left.keys, end + 1, right.numItems);
+        System.arraycopy(right.elements, 0, left.elements, end + 1, right.numItems);
+        if (left.children != null) {
+            System.arraycopy(right.children, 0, left.children, end + 1, right.numItems + 1);
+        }
+        left.numItems += right.numItems + 1;
+
+        System.arraycopy(parent.children, keyIndex + 2, parent.children, keyIndex + 1,
+                parent.numItems - keyIndex - 1);
+        parent.children[parent.numItems] = null;
+        parent.remove(keyIndex);
+    }
+
+    private void pushPath(int depth, Node node, int index) {
+        if (depth == pathNodes.length) {
+            pathNodes = Arrays.copyOf(pathNodes, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+        }
+        pathNodes[depth] = node;
+        pathIndexes[depth] = index;
+    }
+
+    /**
+     * Finds key within a node
+     * @return index of the key, or (-(insertion point) - 1) if not present
+     */
+    private static int search(Node node, long key) {
+        int index = lowerBound(node, key);
+        if (index < node.numItems && node.keys[index] == key) {
+            return index;
+        }
+        return -index - 1;
+    }
+
+    /**
+     * Finds the first key within a node greater than or equal to key
+     */
+    private static int lowerBound(Node node, long key) {
+        long[] keys = node.keys;
+        int high = node.numItems;
+        if (high <= BINARY_SEARCH_THRESHOLD) {
+            int i = 0;
+            while (i < high && keys[i] < key) {
+                i++;
+            }
+            return i;
+        }
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Node of an LongTwoFourTree.  Arrays are one bigger than needed so a node
+     * can hold an extra key while it waits to be split.
+     */
+    static final class Node {
+        int numItems = 0;
+        final long[] keys;
+        final Object[] elements;
+        final Node[] children;
+
+        Node(int maxItems, boolean leaf) {
+            keys = new long[maxItems + 1];
+            elements = new Object[maxItems + 1];
+            children = leaf ? null : new Node[maxItems + 2];
+        }
+
+        // inserts a key, shifting the keys and the children to its right;
+        // the child slot right of the new key is left for the caller to set
+        void insert(int index, long key, Object element) {
+            if (children != null) {
+                System.arraycopy(children, index + 1, children, index + 2, numItems - index);
+            }
+            insertKey(index, key, element);
+        }
+
+        // inserts a key without touching the children
+        void insertKey(int index, long key, Object element) {
+            int moved = numItems - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(elements, index, elements, index + 1, moved);
+            keys[index] = key;
+            elements[index] = element;
+            numItems++;
+        }
+
+        // removes a key without touching the children
+        void remove(int index) {
+            int moved = numItems - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(elements, index + 1, elements, index, moved);
+            numItems--;
+            elements[numItems] = null;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package termproject;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache from keys to the Items a TwoFourTree holds for them.
+ *
+ * @version 1.0
+ * File: LookupCache.java
+ *
+ * Description: The cache sits in front of findElement, so a hot key is
+ * answered with one hash probe instead of a walk down the tree.  It keeps
+ * up to capacity entries in fixed slots, indexed by an open-addressing hash
+ * table.  Once every slot is taken it evicts with the CLOCK algorithm: a
+ * hit sets the slot's reference bit, and the clock hand sweeps the slots,
+ * clearing set bits and evicting the first slot whose bit is already
+ * clear.  A newly admitted entry starts with its bit clear, so a key
+ * looked up only once is the first to go.  Entries are filed under the key
+ * of the Item itself, and the tree drops an entry whenever it removes that
+ * Item, so a hit never returns an entry that has left the tree.  Keys must
+ * keep equals and hashCode consistent with the tree's comparator.
+ */
+public class LookupCache {
+    private final int capacity;
+    // slot + 1 of the entry filed at each position, 0 for empty
+    private final int[] table;
+    private final int mask;
+    private final Object[] keys;
+    private final Item[] items;
+    private final int[] hashes;
+    private final boolean[] referenced;
+    // slots left empty by invalidations, used before the clock evicts
+    private final int[] freeSlots;
+    private int freeCount;
+    private int hand = 0;
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates an empty cache
+     * @param capacity most entries to keep
+     * @exception TwoFourTreeException if capacity is not positive
+     */
+    LookupCache(int capacity) {
+        if (capacity <= 0) {
+            throw new TwoFourTreeException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+        //at most half full, so probe runs stay short
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+        keys = new Object[capacity];
+        items = new Item[capacity];
+        hashes = new int[capacity];
+        referenced = new boolean[capacity];
+        freeSlots = new int[capacity];
+        clear();
+    }
+
+    /**
+     * Looks a key up, counting a hit or a miss
+     * @param key to look up
+     * @return the cached Item, or null if the key is not cached
+     */
+    Item get(Object key) {
+        int slot = find(key, hash(key));
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        referenced[slot] = true;
+        return items[slot];
+    }
+
+    /**
+     * Caches an Item under its own key, evicting another entry if the
+     * cache is full
+     * @param item found in the tree
+     */
+    void put(Item item) {
+        Object key = item.key();
+        int hash = hash(key);
+        if (find(key, hash) >= 0) {
+            return;
+        }
+        int slot = victim();
+        keys[slot] = key;
+        items[slot] = item;
+        hashes[slot] = hash;
+        referenced[slot] = false;
+        int index = hash & mask;
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = slot + 1;
+        size++;
+    }
+
+    /**
+     * Drops the entry for a key, if there is one
+     * @param key of an Item leaving the tree
+     */
+    void invalidate(Object key) {
+        int hash = hash(key);
+        int index = hash & mask;
+        while (table[index] != 0) {
+            int slot = table[index] - 1;
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                removeAt(index);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Drops every entry, keeping the statistics
+     */
+    void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(keys, null);
+        Arrays.fill(items, null);
+        Arrays.fill(referenced, false);
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        size = 0;
+        hand = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the share of lookups answered from the cache
+     * @return hits over lookups, 0 before any lookup
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0.0 : (double) hits / lookups;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public String toString() {
+        return String.format("size=%d/%d hits=%d misses=%d evictions=%d hitRate=%.3f",
+                size, capacity, hits, misses, evictions, getHitRate());
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int find(Object key, int hash) {
+        int index = hash & mask;
+        while (table[index] != 0) {
+            int slot = table[index] - 1;
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // an empty slot if there is one, else the slot the clock hand stops
+    // at, emptied for a new entry
+    private int victim() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1 == capacity) ? 0 : hand + 1;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            }
+            else {
+                evictions++;
+                invalidate(keys[slot]);
+                return freeSlots[--freeCount];
+            }
+        }
+    }
+
+    /**
+     * Empties a table position and shifts later entries of the same probe
+     * run back, so lookups never stop at a false gap
+     */
+    private void removeAt(int index) {
+        int slot = table[index] - 1;
+        keys[slot] = null;
+        items[slot] = null;
+        referenced[slot] = false;
+        freeSlots[freeCount++] = slot;
+        size--;
+        int gap = index;
+        table[gap] = 0;
+        int next = (gap + 1) & mask;
+        while (table[next] != 0) {
+            int home = hashes[table[next] - 1] & mask;
+            //move the entry back unless its home lies after the gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                table[next] = 0;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package termproject;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * This class defines a Two-Four Tree of long keys and long values whose
+ * nodes live outside the Java heap.
+ *
+ * @version 1.0
+ * File: OffHeapLongTwoFourTree.java
+ *
+ * Description: Nodes are fixed-size records carved out of large direct
+ * ByteBuffer slabs and named by an int id; id 0 means no node.  Keys,
+ * values and child ids are read and written in place, so the tree never
+ * creates an object per node or per entry, and the garbage collector sees
+ * only the slab array and the slabs themselves, however many entries the
+ * tree holds.  Freed nodes go on a free list threaded through the records
+ * and are reused before a new slab is allocated.  Values are plain longs,
+ * meant as handles to data kept elsewhere.
+ */
+public class OffHeapLongTwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 15;
+    private static final int DEFAULT_SLAB_BYTES = 8 << 20;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+
+    // record layout: item count, leaf flag, then keys, values and child
+    // ids, each with room for the extra item a node holds while it is split
+    private static final int N_NUM_ITEMS = 0;
+    private static final int N_LEAF = 4;
+    private static final int N_KEYS = 8;
+
+    private final int maxItems;
+    private final int minItems;
+    private final int nodeBytes;
+    private final int nodesPerSlab;
+    private final int valuesAt;
+    private final int childrenAt;
+    private ByteBuffer[] slabs = new ByteBuffer[4];
+    private int slabCount = 0;
+
+    private int size = 0;
+    private int treeRoot = 0;
+    private int nextId = 1;
+    private int freeHead = 0;
+    private int liveNodes = 0;
+
+    // path remembered by insert and remove; pathIndexes[d] is the child of
+    // pathNodes[d] that the descent went into
+    private int[] pathNodes = new int[16];
+    private int[] pathIndexes = new int[16];
+
+    /**
+     * Creates an empty tree holding at most fifteen keys per node
+     */
+    public OffHeapLongTwoFourTree() {
+        this(DEFAULT_MAX_ITEMS, DEFAULT_SLAB_BYTES);
+    }
+
+    /**
+     * Creates an empty tree holding at most maxItems keys per node
+     * @param maxItems maximum number of keys in a node; at least 3
+     * @param slabBytes size of each direct buffer the nodes are carved from
+     */
+    public OffHeapLongTwoFourTree(int maxItems, int slabBytes) {
+        if (maxItems < 3) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
+        this.maxItems = maxItems;
+        this.minItems = (maxItems + 2) / 2 - 1;
+        valuesAt = N_KEYS + 8 * (maxItems + 1);
+        childrenAt = valuesAt + 8 * (maxItems + 1);
+        nodeBytes = (childrenAt + 4 * (maxItems + 2) + 7) & ~7;
+        if (slabBytes < nodeBytes) {
+            throw new TwoFourTreeException("Slab cannot hold a node of " + nodeBytes + " bytes");
+        }
+        nodesPerSlab = slabBytes / nodeBytes;
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Returns the number of nodes in use
+     * @return live node count
+     */
+    public int nodeCount() {
+        return liveNodes;
+    }
+
+    /**
+     * Returns the number of off-heap bytes the tree has allocated
+     * @return bytes in all slabs
+     */
+    public long allocatedBytes() {
+        return (long) slabCount * nodesPerSlab * nodeBytes;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @param missing value to return if key is not present
+     * @return value corresponding to key; missing if not found
+     */
+    public long findElement(long key, long missing) {
+        int node = treeRoot;
+        while (node != 0) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return value(node, index);
+            }
+            node = isLeaf(node) ? 0 : child(node, -index - 1);
+        }
+        return missing;
+    }
+
+    /**
+     * Returns true if key is present in the tree
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(long key) {
+        int node = treeRoot;
+        while (node != 0) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return true;
+            }
+            node = isLeaf(node) ? 0 : child(node, -index - 1);
+        }
+        return false;
+    }
+
+    /**
+     * Inserts provided value into the Dictionary
+     * @param key of value to be inserted
+     * @param value to be inserted
+     */
+    public void insertElement(long key, long value) {
+        if (treeRoot == 0) {
+            treeRoot = allocate(true);
+        }
+        int node = treeRoot;
+        int depth = 0;
+        while (!isLeaf(node)) {
+            int index = lowerBound(node, key);
+            pushPath(depth++, node, index);
+            node = child(node, index);
+        }
+        insert(node, lowerBound(node, key), key, value);
+        size++;
+
+        while (numItems(node) > maxItems) {
+            node = splitNode(node, depth);
+            depth--;
+        }
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding value
+     * @param key of data to be removed
+     * @return value corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public long removeElement(long key) throws ElementNotFoundException {
+        int node = treeRoot;
+        int depth = 0;
+        int index = -1;
+        while (node != 0) {
+            index = search(node, key);
+            if (index >= 0) {
+                break;
+            }
+            if (isLeaf(node)) {
+                node = 0;
+                break;
+            }
+            pushPath(depth++, node, -index - 1);
+            node = child(node, -index - 1);
+        }
+        if (node == 0) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+
+        long removed = value(node, index);
+        if (!isLeaf(node)) {
+            // swap with the in-order predecessor, which is always in a leaf
+            int found = node;
+            pushPath(depth++, node, index);
+            node = child(node, index);
+            while (!isLeaf(node)) {
+                int last = numItems(node);
+                pushPath(depth++, node, last);
+                node = child(node, last);
+            }
+            int last = numItems(node) - 1;
+            setKey(found, index, key(node, last));
+            setValue(found, index, value(node, last));
+            remove(node, last);
+        }
+        else {
+            remove(node, index);
+        }
+        size--;
+
+        while (depth > 0 && numItems(node) < minItems) {
+            depth--;
+            node = fixUnderflow(pathNodes[depth], pathIndexes[depth]);
+        }
+        if (numItems(treeRoot) == 0) {
+            int old = treeRoot;
+            treeRoot = isLeaf(old) ? 0 : child(old, 0);
+            free(old);
+        }
+        return removed;
+    }
+
+    public Object findElement(Object key) {
+        long k = longValue(key);
+        int node = treeRoot;
+        while (node != 0) {
+            int index = search(node, k);
+            if (index >= 0) {
+                return value(node, index);
+            }
+            node = isLeaf(node) ? 0 : child(node, -index - 1);
+        }
+        return null;
+    }
+
+    public void insertElement(Object key, Object element) {
+        insertElement(longValue(key), longValue(element));
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        return removeElement(longValue(key));
+    }
+
+    /**
+     * Removes every entry and releases the slabs to the garbage collector
+     */
+    public void clear() {
+        slabs = new ByteBuffer[4];
+        slabCount = 0;
+        size = 0;
+        treeRoot = 0;
+        nextId = 1;
+        freeHead = 0;
+        liveNodes = 0;
+    }
+
+    private static long longValue(Object value) {
+        if (!(value instanceof Long) && !(value instanceof Integer)) {
+            throw new InvalidObjectException("Object not a long");
+        }
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Splits an overflowed node in two, pushing its middle key into the
+     * parent found on the path (or into a new root)
+     * @param node that holds maxItems + 1 keys
+     * @param depth of node on the remembered path
+     * @return the parent, which may now overflow in turn
+     */
+    private int splitNode(int node, int depth) {
+        int mid = (maxItems + 1) / 2;
+        boolean leaf = isLeaf(node);
+        int sibling = allocate(leaf);
+        int numItems = numItems(node);
+        int moved = numItems - mid - 1;
+        for (int i = 0; i < moved; i++) {
+            setKey(sibling, i, key(node, mid + 1 + i));
+            setValue(sibling, i, value(node, mid + 1 + i));
+        }
+        if (!leaf) {
+            for (int i = 0; i <= moved; i++) {
+                setChild(sibling, i, child(node, mid + 1 + i));
+            }
+        }
+        setNumItems(sibling, moved);
+
+        long midKey = key(node, mid);
+        long midValue = value(node, mid);
+        setNumItems(node, mid);
+
+        int parent;
+        int index;
+        if (depth == 0) {
+            parent = allocate(false);
+            setChild(parent, 0, node);
+            treeRoot = parent;
+            index = 0;
+        }
+        else {
+            parent = pathNodes[depth - 1];
+            index = pathIndexes[depth - 1];
+        }
+        insert(parent, index, midKey, midValue);
+        setChild(parent, index + 1, sibling);
+        return parent;
+    }
+
+    /**
+     * Restores the minimum fill of a child, first by borrowing from an
+     * adjacent sibling and otherwise by fusing it with one
+     * @param parent of the underflowed node
+     * @param index of the underflowed node among the parent's children
+     * @return the parent, which may now underflow in turn
+     */
+    private int fixUnderflow(int parent, int index) {
+        int node = child(parent, index);
+        int parentItems = numItems(parent);
+        int left = (index > 0) ? child(parent, index - 1) : 0;
+        int right = (index < parentItems) ? child(parent, index + 1) : 0;
+
+        if (left != 0 && numItems(left) > minItems) {
+            int leftItems = numItems(left);
+            if (!isLeaf(node)) {
+                for (int i = numItems(node); i >= 0; i--) {
+                    setChild(node, i + 1, child(node, i));
+                }
+                setChild(node, 0, child(left, leftItems));
+            }
+            insertKey(node, 0, key(parent, index - 1), value(parent, index - 1));
+            setKey(parent, index - 1, key(left, leftItems - 1));
+            setValue(parent, index - 1, value(left, leftItems - 1));
+            setNumItems(left, leftItems - 1);
+        }
+        else if (right != 0 && numItems(right) > minItems) {
+            int end = numItems(node);
+            setKey(node, end, key(parent, index));
+            setValue(node, end, value(parent, index));
+            if (!isLeaf(node)) {
+                setChild(node, end + 1, child(right, 0));
+            }
+            setNumItems(node, end + 1);
+            setKey(parent, index, key(right, 0));
+            setValue(parent, index, value(right, 0));
+            if (!isLeaf(right)) {
+                int rightItems = numItems(right);
+                for (int i = 0; i < rightItems; i++) {
+                    setChild(right, i, child(right, i + 1));
+                }
+            }
+            remove(right, 0);
+        }
+        else if (left != 0) {
+            fuse(parent, index - 1);
+        }
+        else {
+            fuse(parent, index);
+        }
+        return parent;
+    }
+
+    /**
+     * Fuses the children either side of a parent key into the left child,
+     * pulling the parent key down between them, and frees the right child
+     */
+    private void fuse(int parent, int keyIndex) {
+        int left = child(parent, keyIndex);
+        int right = child(parent, keyIndex + 1);
+        int end = numItems(left);
+        int rightItems = numItems(right);
+        setKey(left, end, key(parent, keyIndex));
+        setValue(left, end, value(parent, keyIndex));
+        for (int i = 0; i < rightItems; i++) {
+            setKey(left, end + 1 + i, key(right, i));
+            setValue(left, end + 1 + i, value(right, i));
+        }
+        if (!isLeaf(left)) {
+            for (int i = 0; i <= rightItems; i++) {
+                setChild(left, end + 1 + i, child(right, i));
+            }
+        }
+        setNumItems(left, end + rightItems + 1);
+
+        int parentItems = numItems(parent);
+        for (int i = keyIndex + 1; i < parentItems; i++) {
+            setChild(parent, i, child(parent, i + 1));
+        }
+        remove(parent, keyIndex);
+        free(right);
+    }
+
+    // inserts a key, shifting the keys and the children to its right; the
+    // child slot right of the new key is left for the caller to set
+    private void insert(int node, int index, long key, long value) {
+        if (!isLeaf(node)) {
+            for (int i = numItems(node); i > index; i--) {
+                setChild(node, i + 1, child(node, i));
+            }
+        }
+        insertKey(node, index, key, value);
+    }
+
+    // inserts a key without touching the children
+    private void insertKey(int node, int index, long key, long value) {
+        ByteBuffer slab = slab(node);
+        int base = base(node);
+        int numItems = slab.getInt(base + N_NUM_ITEMS);
+        for (int i = numItems; i > index; i--) {
+            slab.putLong(base + N_KEYS + 8 * i, slab.getLong(base + N_KEYS + 8 * (i - 1)));
+            slab.putLong(base + valuesAt + 8 * i, slab.getLong(base + valuesAt + 8 * (i - 1)));
+        }
+        slab.putLong(base + N_KEYS + 8 * index, key);
+        slab.putLong(base + valuesAt + 8 * index, value);
+        slab.putInt(base + N_NUM_ITEMS, numItems + 1);
+    }
+
+    // removes a key without touching the children
+    private void remove(int node, int index) {
+        ByteBuffer slab = slab(node);
+        int base = base(node);
+        int numItems = slab.getInt(base + N_NUM_ITEMS) - 1;
+        for (int i = index; i < numItems; i++) {
+            slab.putLong(base + N_KEYS + 8 * i, slab.getLong(base + N_KEYS + 8 * (i + 1)));
+            slab.putLong(base + valuesAt + 8 * i, slab.getLong(base + valuesAt + 8 * (i + 1)));
+        }
+        slab.putInt(base + N_NUM_ITEMS, numItems);
+    }
+
+    private void pushPath(int depth, int node, int index) {
+        if (depth == pathNodes.length) {
+            pathNodes = Arrays.copyOf(pathNodes, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+        }
+        pathNodes[depth] = node;
+        pathIndexes[depth] = index;
+    }
+
+    /**
+     * Takes a node from the free list, or carves a new one from the last
+     * slab, adding a slab when it is full
+     */
+    private int allocate(boolean leaf) {
+        int node;
+        if (freeHead != 0) {
+            node = freeHead;
+            freeHead = slab(node).getInt(base(node) + N_NUM_ITEMS);
+        }
+        else {
+            node = nextId++;
+            int needed = node / nodesPerSlab + 1;
+            if (needed > slabCount) {
+                if (slabCount == slabs.length) {
+                    slabs = Arrays.copyOf(slabs, slabCount * 2);
+                }
+                slabs[slabCount++] = ByteBuffer.allocateDirect(nodesPerSlab * nodeBytes)
+                        .order(ByteOrder.nativeOrder());
+            }
+        }
+        ByteBuffer slab = slab(node);
+        slab.putInt(base(node) + N_NUM_ITEMS, 0);
+        slab.putInt(base(node) + N_LEAF, leaf ? 1 : 0);
+        liveNodes++;
+        return node;
+    }
+
+    // threads a node onto the free list through its item count field
+    private void free(int node) {
+        slab(node).putInt(base(node) + N_NUM_ITEMS, freeHead);
+        freeHead = node;
+        liveNodes--;
+    }
+
+    private ByteBuffer slab(int node) {
+        return slabs[node / nodesPerSlab];
+    }
+
+    private int base(int node) {
+        return (node % nodesPerSlab) * nodeBytes;
+    }
+
+    private int numItems(int node) {
+        return slab(node).getInt(base(node) + N_NUM_ITEMS);
+    }
+
+    private void setNumItems(int node, int numItems) {
+        slab(node).putInt(base(node) + N_NUM_ITEMS, numItems);
+    }
+
+    private boolean isLeaf(int node) {
+        return slab(node).getInt(base(node) + N_LEAF) != 0;
+    }
+
+    private long key(int node, int index) {
+        return slab(node).getLong(base(node) + N_KEYS + 8 * index);
+    }
+
+    private void setKey(int node, int index, long key) {
+        slab(node).putLong(base(node) + N_KEYS + 8 * index, key);
+    }
+
+    private long value(int node, int index) {
+        return slab(node).getLong(base(node) + valuesAt + 8 * index);
+    }
+
+    private void setValue(int node, int index, long value) {
+        slab(node).putLong(base(node) + valuesAt + 8 * index, value);
+    }
+
+    private int child(int node, int index) {
+        return slab(node).getInt(base(node) + childrenAt + 4 * index);
+    }
+
+    private void setChild(int node, int index, int child) {
+        slab(node).putInt(base(node) + childrenAt + 4 * index, child);
+    }
+
+    /**
+     * Finds key within a node
+     * @return index of the key, or (-(insertion point) - 1) if not present
+     */
+    private int search(int node, long key) {
+        int index = lowerBound(node, key);
+        if (index < numItems(node) && key(node, index) == key) {
+            return index;
+        }
+        return -index - 1;
+    }
+
+    /**
+     * Finds the first key within a node greater than or equal to key
+     */
+    private int lowerBound(int node, long key) {
+        ByteBuffer slab = slab(node);
+        int keys = base(node) + N_KEYS;
+        int high = slab.getInt(base(node) + N_NUM_ITEMS);
+        if (high <= BINARY_SEARCH_THRESHOLD) {
+            int i = 0;
+            while (i < high && slab.getLong(keys + 8 * i) < key) {
+                i++;
+            }
+            return i;
+        }
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (slab.getLong(keys + 8 * mid) < key) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,715 @@
+package termproject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class defines a Two-Four Tree of long keys and long values that
+ * lives in a page file instead of on the heap.
+ *
+ * @version 1.0
+ * File: PagedTwoFourTree.java
+ *
+ * Description: Every node occupies one fixed-size page of the file, and
+ * children are named by page number.  The file is memory-mapped in large
+ * segments, so reading a page is a copy out of the OS page cache.  Decoded
+ * nodes are kept in a bounded LRU cache; a node changed by an update is
+ * written back to its page when the cache evicts it or on flush().  Page 0
+ * is a header holding the order, the root page, the size and the head of a
+ * list of free pages, which are reused before the file grows.  Opening an
+ * existing file reads only the header, so no rebuild is needed.
+ *
+ * Changes reach the file on flush() and close(); a crash in between can
+ * leave the file inconsistent.
+ */
+public class PagedTwoFourTree implements Dictionary, Closeable {
+    private static final int DEFAULT_MAX_ITEMS = 200;
+    private static final int DEFAULT_CACHE_PAGES = 4096;
+    // an update touches at most about three nodes per level, and no tree
+    // here is more than 31 levels deep; a cache at least this big never
+    // evicts a node that the running update still holds
+    private static final int MIN_CACHE_PAGES = 128;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+    // the file grows one mapped segment at a time; the unused tail of the
+    // last segment stays sparse on most file systems
+    private static final int SEGMENT_BYTES = 64 << 20;
+
+    private static final long MAGIC = 0x32344654524545L;
+    private static final int VERSION = 1;
+    // header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_MAX_ITEMS = 12;
+    private static final int H_ROOT = 16;
+    private static final int H_PAGE_COUNT = 20;
+    private static final int H_FREE_HEAD = 24;
+    private static final int H_SIZE = 28;
+    private static final int HEADER_BYTES = 36;
+    // page layout: item count, leaf flag, then keys, values and children,
+    // each with room for the extra item a node holds while it is split
+    private static final int P_NUM_ITEMS = 0;
+    private static final int P_LEAF = 4;
+    private static final int P_KEYS = 8;
+
+    private final FileChannel channel;
+    private final int maxItems;
+    private final int minItems;
+    private final int pageSize;
+    private final int pagesPerSegment;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[4];
+    private int segmentCount = 0;
+
+    private int rootPage;
+    private int pageCount;
+    private int freeHead;
+    private int size;
+    private final LinkedHashMap<Integer, Node> cache;
+
+    // path remembered by insert and remove; pathIndexes[d] is the child of
+    // pathNodes[d] that the descent went into
+    private Node[] pathNodes = new Node[16];
+    private int[] pathIndexes = new int[16];
+
+    /**
+     * Opens a page file, creating it if it does not exist
+     * @param file to hold the tree
+     * @exception IOException if the file cannot be opened or is not a tree
+     */
+    public PagedTwoFourTree(Path file) throws IOException {
+        this(file, 0, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens a page file, creating it with the given order if it does not
+     * exist
+     * @param file to hold the tree
+     * @param maxItems maximum number of keys in a node; at least 3, or 0 to
+     * use the order stored in an existing file
+     * @param cachePages number of decoded nodes kept on the heap
+     * @exception IOException if the file cannot be opened or is not a tree
+     */
+    public PagedTwoFourTree(Path file, int maxItems, int cachePages) throws IOException {
+        if (maxItems != 0 && maxItems < 3) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean existing = channel.size() > 0;
+            if (existing) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                }
+                if (header.position() < HEADER_BYTES || header.getLong(H_MAGIC) != MAGIC) {
+                    throw new IOException("Not a tree page file: " + file);
+                }
+                if (header.getInt(H_VERSION) != VERSION) {
+                    throw new IOException("Unsupported page file version: " + file);
+                }
+                int stored = header.getInt(H_MAX_ITEMS);
+                if (maxItems != 0 && maxItems != stored) {
+                    throw new IOException("Page file holds nodes of " + stored + " items");
+                }
+                this.maxItems = stored;
+                rootPage = header.getInt(H_ROOT);
+                pageCount = header.getInt(H_PAGE_COUNT);
+                freeHead = header.getInt(H_FREE_HEAD);
+                size = (int) header.getLong(H_SIZE);
+            }
+            else {
+                this.maxItems = (maxItems == 0) ? DEFAULT_MAX_ITEMS : maxItems;
+                rootPage = 0;
+                pageCount = 1;
+                freeHead = 0;
+                size = 0;
+            }
+            this.minItems = (this.maxItems + 2) / 2 - 1;
+            pageSize = pageSizeFor(this.maxItems);
+            pagesPerSegment = Math.max(1, SEGMENT_BYTES / pageSize);
+            mapThrough(pageCount - 1);
+            if (!existing) {
+                writeHeader();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        int capacity = Math.max(cachePages, MIN_CACHE_PAGES);
+        cache = new LinkedHashMap<Integer, Node>(capacity * 4 / 3 + 1, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                writeNode(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of bytes in a page for nodes of maxItems keys
+     * @param maxItems maximum number of keys in a node
+     * @return page size in bytes, a multiple of 8
+     */
+    public static int pageSizeFor(int maxItems) {
+        int bytes = P_KEYS + 16 * (maxItems + 1) + 4 * (maxItems + 2);
+        return Math.max((bytes + 7) & ~7, HEADER_BYTES + 4);
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Returns the number of pages in the file, the header included
+     * @return page count
+     */
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @param missing value to return if key is not present
+     * @return value corresponding to key; missing if not found
+     */
+    public long findElement(long key, long missing) {
+        int page = rootPage;
+        while (page != 0) {
+            Node node = node(page);
+            int index = search(node, key);
+            if (index >= 0) {
+                return node.values[index];
+            }
+            page = (node.children == null) ? 0 : node.children[-index - 1];
+        }
+        return missing;
+    }
+
+    /**
+     * Returns true if key is present in the tree
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(long key) {
+        int page = rootPage;
+        while (page != 0) {
+            Node node = node(page);
+            int index = search(node, key);
+            if (index >= 0) {
+                return true;
+            }
+            page = (node.children == null) ? 0 : node.children[-index - 1];
+        }
+        return false;
+    }
+
+    /**
+     * Inserts provided value into the Dictionary
+     * @param key of value to be inserted
+     * @param value to be inserted
+     */
+    public void insertElement(long key, long value) {
+        if (rootPage == 0) {
+            rootPage = allocate(true).page;
+        }
+        Node node = node(rootPage);
+        int depth = 0;
+        while (node.children != null) {
+            int index = lowerBound(node, key);
+            pushPath(depth++, node, index);
+            node = node(node.children[index]);
+        }
+        node.insert(lowerBound(node, key), key, value);
+        node.dirty = true;
+        size++;
+
+        while (node.numItems > maxItems) {
+            node = splitNode(node, depth);
+            depth--;
+        }
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding value
+     * @param key of data to be removed
+     * @return value corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public long removeElement(long key) throws ElementNotFoundException {
+        int page = rootPage;
+        Node node = null;
+        int depth = 0;
+        int index = -1;
+        while (page != 0) {
+            node = node(page);
+            index = search(node, key);
+            if (index >= 0) {
+                break;
+            }
+            if (node.children == null) {
+                page = 0;
+                break;
+            }
+            pushPath(depth++, node, -index - 1);
+            page = node.children[-index - 1];
+        }
+        if (page == 0) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+
+        long removed = node.values[index];
+        if (node.children != null) {
+            // swap with the in-order predecessor, which is always in a leaf
+            Node found = node;
+            pushPath(depth++, node, index);
+            node = node(node.children[index]);
+            while (node.children != null) {
+                pushPath(depth++, node, node.numItems);
+                node = node(node.children[node.numItems]);
+            }
+            int last = node.numItems - 1;
+            found.keys[index] = node.keys[last];
+            found.values[index] = node.values[last];
+            found.dirty = true;
+            node.remove(last);
+        }
+        else {
+            node.remove(index);
+        }
+        node.dirty = true;
+        size--;
+
+        while (depth > 0 && node.numItems < minItems) {
+            depth--;
+            node = fixUnderflow(pathNodes[depth], pathIndexes[depth]);
+        }
+        Node root = node(rootPage);
+        if (root.numItems == 0) {
+            rootPage = (root.children == null) ? 0 : root.children[0];
+            free(root);
+        }
+        return removed;
+    }
+
+    public Object findElement(Object key) {
+        long k = longValue(key);
+        int page = rootPage;
+        while (page != 0) {
+            Node node = node(page);
+            int index = search(node, k);
+            if (index >= 0) {
+                return node.values[index];
+            }
+            page = (node.children == null) ? 0 : node.children[-index - 1];
+        }
+        return null;
+    }
+
+    public void insertElement(Object key, Object element) {
+        insertElement(longValue(key), longValue(element));
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        return removeElement(longValue(key));
+    }
+
+    private static long longValue(Object value) {
+        if (!(value instanceof Long) && !(value instanceof Integer)) {
+            throw new InvalidObjectException("Object not a long");
+        }
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Writes every changed node and the header to the file and forces the
+     * file to the storage device
+     */
+    public void flush() {
+        for (Node node : cache.values()) {
+            writeNode(node);
+        }
+        writeHeader();
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i].force();
+        }
+    }
+
+    /**
+     * Flushes the tree and closes the file
+     * @exception IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        flush();
+        cache.clear();
+        segments = null;
+        channel.close();
+    }
+
+    /**
+     * Splits an overflowed node in two, pushing its middle key into the
+     * parent found on the path (or into a new root)
+     * @param node that holds maxItems + 1 keys
+     * @param depth of node on the remembered path
+     * @return the parent, which may now overflow in turn
+     */
+    private Node splitNode(Node node, int depth) {
+        int mid = (maxItems + 1) / 2;
+        Node sibling = allocate(node.children == null);
+        int moved = node.numItems - mid - 1;
+        System.arraycopy(node.keys, mid + 1, sibling.keys, 0, moved);
+        System.arraycopy(node.values, mid + 1, sibling.values, 0, moved);
+        if (node.children != null) {
+            System.arraycopy(node.children, mid + 1, sibling.children, 0, moved + 1);
+            Arrays.fill(node.children, mid + 1, node.numItems + 1, 0);
+        }
+        sibling.numItems = moved;
+
+        long midKey = node.keys[mid];
+        long midValue = node.values[mid];
+        node.numItems = mid;
+        node.dirty = true;
+
+        Node parent;
+        int index;
+        if (depth == 0) {
+            parent = allocate(false);
+            parent.children[0] = node.page;
+            rootPage = parent.page;
+            index = 0;
+        }
+        else {
+            parent = pathNodes[depth - 1];
+            index = pathIndexes[depth - 1];
+        }
+        parent.insert(index, midKey, midValue);
+        parent.children[index + 1] = sibling.page;
+        parent.dirty = true;
+        return parent;
+    }
+
+    /**
+     * Restores the minimum fill of a child, first by borrowing from an
+     * adjacent sibling and otherwise by fusing it with one
+     * @param parent of the underflowed node
+     * @param index of the underflowed node among the parent's children
+     * @return the parent, which may now underflow in turn
+     */
+    private Node fixUnderflow(Node parent, int index) {
+        Node node = node(parent.children[index]);
+        Node left = (index > 0) ? node(parent.children[index - 1]) : null;
+        Node right = (index < parent.numItems) ? node(parent.children[index + 1]) : null;
+        parent.dirty = true;
+        node.dirty = true;
+
+        if (left != null && left.numItems > minItems) {
+            if (node.children != null) {
+                System.arraycopy(node.children, 0, node.children, 1, node.numItems + 1);
+                node.children[0] = left.children[left.numItems];
+                left.children[left.numItems] = 0;
+            }
+            node.insertKey(0, parent.keys[index - 1], parent.values[index - 1]);
+            int last = left.numItems - 1;
+            parent.keys[index - 1] = left.keys[last];
+            parent.values[index - 1] = left.values[last];
+            left.numItems--;
+            left.dirty = true;
+        }
+        else if (right != null && right.numItems > minItems) {
+            int end = node.numItems;
+            node.keys[end] = parent.keys[index];
+            node.values[end] = parent.values[index];
+            if (node.children != null) {
+                node.children[end + 1] = right.children[0];
+            }
+            node.numItems++;
+            parent.keys[index] = right.keys[0];
+            parent.values[index] = right.values[0];
+            if (right.children != null) {
+                System.arraycopy(right.children, 1, right.children, 0, right.numItems);
+                right.children[right.numItems] = 0;
+            }
+            right.remove(0);
+            right.dirty = true;
+        }
+        else if (left != null) {
+            fuse(parent, index - 1, left, node);
+        }
+        else {
+            fuse(parent, index, node, right);
+        }
+        return parent;
+    }
+
+    /**
+     * Fuses the children either side of a parent key into the left child,
+     * pulling the parent key down between them, and frees the right child's
+     * page
+     */
+    private void fuse(Node parent, int keyIndex, Node left, Node right) {
+        int end = left.numItems;
+        left.keys[end] = parent.keys[keyIndex];
+        left.values[end] = parent.values[keyIndex];
+        System.arraycopy(right.keys, 0, left.keys, end + 1, right.numItems);
+        System.arraycopy(right.values, 0, left.values, end + 1, right.numItems);
+        if (left.children != null) {
+            System.arraycopy(right.children, 0, left.children, end + 1, right.numItems + 1);
+        }
+        left.numItems += right.numItems + 1;
+        left.dirty = true;
+
+        System.arraycopy(parent.children, keyIndex + 2, parent.children, keyIndex + 1,
+                parent.numItems - keyIndex - 1);
+        parent.children[parent.numItems] = 0;
+        parent.remove(keyIndex);
+        free(right);
+    }
+
+    private void pushPath(int depth, Node node, int index) {
+        if (depth == pathNodes.length) {
+            pathNodes = Arrays.copyOf(pathNodes, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+        }
+        pathNodes[depth] = node;
+        pathIndexes[depth] = index;
+    }
+
+    /**
+     * Returns the node stored in a page, decoding it if it is not cached
+     */
+    private Node node(int page) {
+        Node node = cache.get(page);
+        if (node == null) {
+            node = readNode(page);
+            cache.put(page, node);
+        }
+        return node;
+    }
+
+    /**
+     * Takes a page from the free list, or adds one to the end of the file
+     */
+    private Node allocate(boolean leaf) {
+        int page;
+        if (freeHead != 0) {
+            page = freeHead;
+            freeHead = segment(page).getInt(offset(page));
+        }
+        else {
+            page = pageCount++;
+            mapThrough(page);
+        }
+        Node node = new Node(page, maxItems, leaf);
+        node.dirty = true;
+        cache.put(page, node);
+        return node;
+    }
+
+    /**
+     * Returns a node's page to the free list
+     */
+    private void free(Node node) {
+        cache.remove(node.page);
+        node.dirty = false;
+        segment(node.page).putInt(offset(node.page), freeHead);
+        freeHead = node.page;
+    }
+
+    private Node readNode(int page) {
+        ByteBuffer buffer = segment(page);
+        int base = offset(page);
+        boolean leaf = buffer.get(base + P_LEAF) != 0;
+        Node node = new Node(page, maxItems, leaf);
+        node.numItems = buffer.getInt(base + P_NUM_ITEMS);
+        int keysAt = base + P_KEYS;
+        int valuesAt = keysAt + 8 * (maxItems + 1);
+        for (int i = 0; i < node.numItems; i++) {
+            node.keys[i] = buffer.getLong(keysAt + 8 * i);
+            node.values[i] = buffer.getLong(valuesAt + 8 * i);
+        }
+        if (!leaf) {
+            int childrenAt = valuesAt + 8 * (maxItems + 1);
+            for (int i = 0; i <= node.numItems; i++) {
+                node.children[i] = buffer.getInt(childrenAt + 4 * i);
+            }
+        }
+        return node;
+    }
+
+    private void writeNode(Node node) {
+        if (!node.dirty) {
+            return;
+        }
+        ByteBuffer buffer = segment(node.page);
+        int base = offset(node.page);
+        buffer.putInt(base + P_NUM_ITEMS, node.numItems);
+        buffer.put(base + P_LEAF, (byte) ((node.children == null) ? 1 : 0));
+        int keysAt = base + P_KEYS;
+        int valuesAt = keysAt + 8 * (maxItems + 1);
+        for (int i = 0; i < node.numItems; i++) {
+            buffer.putLong(keysAt + 8 * i, node.keys[i]);
+            buffer.putLong(valuesAt + 8 * i, node.values[i]);
+        }
+        if (node.children != null) {
+            int childrenAt = valuesAt + 8 * (maxItems + 1);
+            for (int i = 0; i <= node.numItems; i++) {
+                buffer.putInt(childrenAt + 4 * i, node.children[i]);
+            }
+        }
+        node.dirty = false;
+    }
+
+    private void writeHeader() {
+        ByteBuffer header = segments[0];
+        header.putLong(H_MAGIC, MAGIC);
+        header.putInt(H_VERSION, VERSION);
+        header.putInt(H_MAX_ITEMS, maxItems);
+        header.putInt(H_ROOT, rootPage);
+        header.putInt(H_PAGE_COUNT, pageCount);
+        header.putInt(H_FREE_HEAD, freeHead);
+        header.putLong(H_SIZE, size);
+    }
+
+    private MappedByteBuffer segment(int page) {
+        return segments[page / pagesPerSegment];
+    }
+
+    private int offset(int page) {
+        return (page % pagesPerSegment) * pageSize;
+    }
+
+    /**
+     * Maps segments until the given page is covered; mapping past the end
+     * of the file grows it
+     */
+    private void mapThrough(int page) {
+        int needed = page / pagesPerSegment + 1;
+        while (segmentCount < needed) {
+            if (segmentCount == segments.length) {
+                segments = Arrays.copyOf(segments, segmentCount * 2);
+            }
+            long bytes = (long) pagesPerSegment * pageSize;
+            try {
+                segments[segmentCount] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        segmentCount * bytes, bytes);
+            }
+            catch (IOException e) {
+                throw new TwoFourTreeException("Cannot grow page file: " + e.getMessage());
+            }
+            segmentCount++;
+        }
+    }
+
+    /**
+     * Finds key within a node
+     * @return index of the key, or (-(insertion point) - 1) if not present
+     */
+    private static int search(Node node, long key) {
+        int index = lowerBound(node, key);
+        if (index < node.numItems && node.keys[index] == key) {
+            return index;
+        }
+        return -index - 1;
+    }
+
+    /**
+     * Finds the first key within a node greater than or equal to key
+     */
+    private static int lowerBound(Node node, long key) {
+        long[] keys = node.keys;
+        int high = node.numItems;
+        if (high <= BINARY_SEARCH_THRESHOLD) {
+            int i = 0;
+            while (i < high && keys[i] < key) {
+                i++;
+            }
+            return i;
+        }
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decoded copy of one page.  Children are page numbers; 0 is never a
+     * node, since page 0 is the header.
+     */
+    static final class Node {
+        final int page;
+        int numItems = 0;
+        final long[] keys;
+        final long[] values;
+        final int[] children;
+        // changed since it was last written to its page
+        boolean dirty;
+
+        Node(int page, int maxItems, boolean leaf) {
+            this.page = page;
+            keys = new long[maxItems + 1];
+            values = new long[maxItems + 1];
+            children = leaf ? null : new int[maxItems + 2];
+        }
+
+        // inserts a key, shifting the keys and the children to its right;
+        // the child slot right of the new key is left for the caller to set
+        void insert(int index, long key, long value) {
+            if (children != null) {
+                System.arraycopy(children, index + 1, children, index + 2, numItems - index);
+            }
+            insertKey(index, key, value);
+        }
+
+        // inserts a key without touching the children
+        void insertKey(int index, long key, long value) {
+            int moved = numItems - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(values, index, values, index + 1, moved);
+            keys[index] = key;
+            values[index] = value;
+            numItems++;
+        }
+
+        // removes a key without touching the children
+        void remove(int index) {
+            int moved = numItems - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+            numItems--;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package termproject;
+
+/**
+ * This class defines a copy-on-write Two-Four Tree that implements the
+ * Dictionary interface and hands out constant-time snapshots.
+ *
+ * @version 1.0
+ * File: PersistentTwoFourTree.java
+ *
+ * Description: Nodes have no parent pointers; insert and remove recurse
+ * down one path and fix overflow and underflow on the way back up.  Every
+ * node is stamped with the epoch that created it.  snapshot() captures the
+ * current root and starts a new epoch, after which the live tree copies a
+ * node before its first change instead of modifying it.  A snapshot
+ * therefore shares every node the live tree has not touched since, its
+ * view never changes, and reading it never blocks the writer.  Between
+ * snapshots nodes of the current epoch are updated in place, so memory only
+ * grows with the nodes that actually change.
+ */
+public class PersistentTwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+
+    private final Comparator treeComp;
+    private final int maxItems;
+    private final int minItems;
+    private int size = 0;
+    private Node treeRoot = null;
+    // nodes stamped with this object belong to the live tree alone
+    private Object epoch = new Object();
+
+    // item taken from the bottom of a subtree by removeMax
+    private Object pendingKey;
+    private Object pendingElement;
+
+    /**
+     * Sets the comparator to use when comparing keys
+     * @param comp comparator for the keys
+     */
+    public PersistentTwoFourTree(Comparator comp) {
+        this(comp, DEFAULT_MAX_ITEMS);
+    }
+
+    /**
+     * Sets the comparator and the order of the tree
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node; at least 3
+     */
+    public PersistentTwoFourTree(Comparator comp, int maxItems) {
+        if (maxItems < DEFAULT_MAX_ITEMS) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
+        treeComp = comp;
+        this.maxItems = maxItems;
+        this.minItems = (maxItems + 2) / 2 - 1;
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Returns a read-only view of the tree as it is now.  Takes constant
+     * time; later changes to this tree copy the nodes they touch instead of
+     * altering the snapshot.
+     * @return snapshot of the current contents
+     */
+    public TwoFourTreeSnapshot snapshot() {
+        TwoFourTreeSnapshot snapshot = new TwoFourTreeSnapshot(treeComp, treeRoot, size);
+        epoch = new Object();
+        return snapshot;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public Object findElement(Object key) {
+        return find(treeComp, treeRoot, key);
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(Object key, Object element) {
+        Node root = (treeRoot == null) ? new Node(maxItems, true, epoch) : editable(treeRoot);
+        treeRoot = root;
+        insert(root, key, element);
+        if (root.numItems > maxItems) {
+            Node newRoot = new Node(maxItems, false, epoch);
+            newRoot.children[0] = root;
+            split(newRoot, 0);
+            treeRoot = newRoot;
+        }
+        size++;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        //check first, so a miss copies nothing
+        if (!contains(key)) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+        Node root = editable(treeRoot);
+        treeRoot = root;
+        Object removed = remove(root, key);
+        if (root.numItems == 0) {
+            treeRoot = (root.children == null) ? null : root.children[0];
+        }
+        size--;
+        return removed;
+    }
+
+    private boolean contains(Object key) {
+        Node node = treeRoot;
+        while (node != null) {
+            int index = search(treeComp, node, key);
+            if (index >= 0) {
+                return true;
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return false;
+    }
+
+    private void insert(Node node, Object key, Object element) {
+        int index = lowerBound(node, key);
+        if (node.children == null) {
+            node.insert(index, key, element);
+            return;
+        }
+        Node child = editable(node.children[index]);
+        node.children[index] = child;
+        insert(child, key, element);
+        if (child.numItems > maxItems) {
+            split(node, index);
+        }
+    }
+
+    private Object remove(Node node, Object key) {
+        int index = search(treeComp, node, key);
+        if (node.children == null) {
+            Object removed = node.elements[index];
+            node.remove(index);
+            return removed;
+        }
+        Object removed;
+        if (index >= 0) {
+            //replace with the in-order predecessor from the left subtree
+            removed = node.elements[index];
+            Node child = editable(node.children[index]);
+            node.children[index] = child;
+            removeMax(child);
+            node.keys[index] = pendingKey;
+            node.elements[index] = pendingElement;
+            pendingKey = null;
+            pendingElement = null;
+        }
+        else {
+            index = -index - 1;
+            Node child = editable(node.children[index]);
+            node.children[index] = child;
+            removed = remove(child, key);
+        }
+        fixUnderflow(node, index);
+        return removed;
+    }
+
+    private void removeMax(Node node) {
+        if (node.children == null) {
+            int last = node.numItems - 1;
+            pendingKey = node.keys[last];
+            pendingElement = node.elements[last];
+            node.remove(last);
+            return;
+        }
+        int index = node.numItems;
+        Node child = editable(node.children[index]);
+        node.children[index] = child;
+        removeMax(child);
+        fixUnderflow(node, index);
+    }
+
+    /**
+     * Splits the overflowed child at index around its middle item, which
+     * moves up into the parent; both are already editable
+     */
+    private void split(Node parent, int index) {
+        Node child = parent.children[index];
+        int mid = (maxItems + 1) / 2;
+        Node sibling = new Node(maxItems, child.children == null, epoch);
+        int moved = child.numItems - mid - 1;
+        System.arraycopy(child.keys, mid + 1, sibling.keys, 0, moved);
+        System.arraycopy(child.elements, mid + 1, sibling.elements, 0, moved);
+        if (child.children != null) {
+            System.arraycopy(child.children, mid + 1, sibling.children, 0, moved + 1);
+            for (int i = mid + 1; i <= child.numItems; i++) {
+                child.children[i] = null;
+            }
+        }
+        sibling.numItems = moved;
+        Object midKey = child.keys[mid];
+        Object midElement = child.elements[mid];
+        for (int i = mid; i < child.numItems; i++) {
+            child.keys[i] = null;
+            child.elements[i] = null;
+        }
+        child.numItems = mid;
+        parent.insert(index, midKey, midElement);
+        parent.children[index + 1] = sibling;
+    }
+
+    /**
+     * Restores the minimum fill of the child at index, which is editable,
+     * by borrowing from a sibling or fusing with one.  A sibling is copied
+     * only if it is actually changed.
+     */
+    private void fixUnderflow(Node parent, int index) {
+        Node node = parent.children[index];
+        if (node.numItems >= minItems) {
+            return;
+        }
+        Node left = (index > 0) ? parent.children[index - 1] : null;
+        Node right = (index < parent.numItems) ? parent.children[index + 1] : null;
+
+        if (left != null && left.numItems > minItems) {
+            left = editable(left);
+            parent.children[index - 1] = left;
+            if (node.children != null) {
+                System.arraycopy(node.children, 0, node.children, 1, node.numItems + 1);
+                node.children[0] = left.children[left.numItems];
+                left.children[left.numItems] = null;
+            }
+            node.insertKey(0, parent.keys[index - 1], parent.elements[index - 1]);
+            int last = left.numItems - 1;
+            parent.keys[index - 1] = left.keys[last];
+            parent.elements[index - 1] = left.elements[last];
+            left.remove(last);
+        }
+        else if (right != null && right.numItems > minItems) {
+            right = editable(right);
+            parent.children[index + 1] = right;
+            int end = node.numItems;
+            node.keys[end] = parent.keys[index];
+            node.elements[end] = parent.elements[index];
+            if (node.children != null) {
+                node.children[end + 1] = right.children[0];
+                System.arraycopy(right.children, 1, right.children, 0, right.numItems);
+                right.children[right.numItems] = null;
+            }
+            node.numItems++;
+            parent.keys[index] = right.keys[0];
+            parent.elements[index] = right.elements[0];
+            right.remove(0);
+        }
+        else if (left != null) {
+            left = editable(left);
+            parent.children[index - 1] = left;
+            fuse(parent, index - 1);
+        }
+        else {
+            //the right sibling is only read, so it can stay shared
+            fuse(parent, index);
+        }
+    }
+
+    // fuses the children either side of a parent item into the left one
+    private void fuse(Node parent, int keyIndex) {
+        Node left = parent.children[keyIndex];
+        Node right = parent.children[keyIndex + 1];
+        int end = left.numItems;
+        left.keys[end] = parent.keys[keyIndex];
+        left.elements[end] = parent.elements[keyIndex];
+        System.arraycopy(right.keys, 0, left.keys, end + 1, right.numItems);
+        System.arraycopy(right.elements, 0, left.elements, end + 1, right.numItems);
+        if (left.children != null) {
+            System.arraycopy(right.children, 0, left.children, end + 1, right.numItems + 1);
+        }
+        left.numItems += right.numItems + 1;
+        System.arraycopy(parent.children, keyIndex + 2, parent.children, keyIndex + 1,
+                parent.numItems - keyIndex - 1);
+        parent.children[parent.numItems] = null;
+        parent.remove(keyIndex);
+    }
+
+    private Node editable(Node node) {
+        return (node.epoch == epoch) ? node : node.copy(epoch);
+    }
+
+    private int lowerBound(Node node, Object key) {
+        int low = 0;
+        int high = node.numItems;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (treeComp.compare(node.keys[mid], key) >= 0) {
+                high = mid;
+            }
+            else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Searches from a root for key; shared with snapshots
+     * @return element of the key, null if not found
+     */
+    static Object find(Comparator comp, Node node, Object key) {
+        while (node != null) {
+            int index = search(comp, node, key);
+            if (index >= 0) {
+                return node.elements[index];
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return null;
+    }
+
+    /**
+     * Finds key within a node
+     * @return index of the key, or (-(insertion point) - 1) if not present
+     */
+    static int search(Comparator comp, Node node, Object key) {
+        int low = 0;
+        int high = node.numItems;
+        if (high > BINARY_SEARCH_THRESHOLD) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int result = comp.compare(node.keys[mid], key);
+                if (result == 0) {
+                    return mid;
+                }
+                if (result > 0) {
+                    high = mid;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return -low - 1;
+        }
+        for (; low < high; low++) {
+            int result = comp.compare(node.keys[low], key);
+            if (result == 0) {
+                return low;
+            }
+            if (result > 0) {
+                break;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Node of a PersistentTwoFourTree.  A node may be changed only by the
+     * epoch that created it; anyone else works on a copy.
+     */
+    static final class Node {
+        final Object epoch;
+        int numItems = 0;
+        final Object[] keys;
+        final Object[] elements;
+        final Node[] children;
+
+        Node(int maxItems, boolean leaf, Object epoch) {
+            this.epoch = epoch;
+            keys = new Object[maxItems + 1];
+            elements = new Object[maxItems + 1];
+            children = leaf ? null : new Node[maxItems + 2];
+        }
+
+        private Node(Node original, Object epoch) {
+            this.epoch = epoch;
+            numItems = original.numItems;
+            keys = original.keys.clone();
+            elements = original.elements.clone();
+            children = (original.children == null) ? null : original.children.clone();
+        }
+
+        Node copy(Object newEpoch) {
+            return new Node(this, newEpoch);
+        }
+
+        // inserts a key, shifting the keys and the children to its right;
+        // the child slot right of the new key is left for the caller to set
+        void insert(int index, Object key, Object element) {
+            if (children != null) {
+                System.arraycopy(children, index + 1, children, index + 2, numItems - index);
+            }
+            insertKey(index, key, element);
+        }
+
+        void insertKey(int index, Object key, Object element) {
+            int moved = numItems - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(elements, index, elements, index + 1, moved);
+            keys[index] = key;
+            elements[index] = element;
+            numItems++;
+        }
+
+        // removes a key without touching the children
+        void remove(int index) {
+            int moved = numItems - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(elements, index + 1, elements, index, moved);
+            numItems--;
+            keys[numItems] = null;
+            elements[numItems] = null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package termproject;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class defines a Dictionary that records every call to a trace file
+ * while passing it on to another Dictionary.
+ *
+ * @version 1.0
+ * File: RecordingDictionary.java
+ *
+ * Description: Wrapping the dictionary an application already uses
+ * captures its real operation stream, which WorkloadTool can then replay
+ * against each variant of the tree.  Records are written in the format of
+ * WorkloadTrace, in the order the calls were made, through a buffer that
+ * close() flushes.  Each call is recorded and passed on under one lock,
+ * so that with several threads the trace still holds the calls in the
+ * order the wrapped dictionary applied them; recording a concurrent
+ * dictionary therefore runs its calls one at a time.  A failed write, or
+ * a key that is not an Integer, stops the recording, and close() reports
+ * it, so tracing never makes the wrapped dictionary fail.
+ */
+public class RecordingDictionary implements Dictionary, Closeable {
+    private final Dictionary dictionary;
+    private final DataOutputStream out;
+    private IOException failure;
+    private boolean closed = false;
+
+    /**
+     * Starts recording calls to a dictionary
+     * @param dictionary to pass the calls on to
+     * @param file to write the trace to, replacing it
+     * @exception IOException if the file cannot be created
+     */
+    public RecordingDictionary(Dictionary dictionary, Path file) throws IOException {
+        this.dictionary = dictionary;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        WorkloadTrace.writeHeader(out);
+    }
+
+    public int size() {
+        return dictionary.size();
+    }
+
+    public boolean isEmpty() {
+        return dictionary.isEmpty();
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public synchronized Object findElement(Object key) {
+        record(WorkloadTrace.FIND, key);
+        return dictionary.findElement(key);
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public synchronized void insertElement(Object key, Object element) {
+        record(WorkloadTrace.INSERT, key);
+        dictionary.insertElement(key, element);
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public synchronized Object removeElement(Object key) throws ElementNotFoundException {
+        record(WorkloadTrace.REMOVE, key);
+        return dictionary.removeElement(key);
+    }
+
+    /**
+     * Flushes the trace and closes its file.  The wrapped dictionary is
+     * left open.
+     * @exception IOException if a record could not be written, or a key
+     * could not be recorded
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        }
+        catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // called with the lock held, just before the call is passed on
+    private void record(byte op, Object key) {
+        if (closed || failure != null) {
+            return;
+        }
+        if (!(key instanceof Integer)) {
+            failure = new IOException("Only Integer keys can be recorded, not " + key);
+            return;
+        }
+        try {
+            WorkloadTrace.writeRecord(out, op, (Integer) key);
+        }
+        catch (IOException e) {
+            failure = e;
+        }
+    }
+}
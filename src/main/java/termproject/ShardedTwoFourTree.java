@@ -0,0 +1,663 @@
+package termproject;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * This class defines a thread-safe Dictionary that spreads its keys over
+ * several TwoFourTrees by key range.
+ *
+ * @version 1.0
+ * File: ShardedTwoFourTree.java
+ *
+ * Description: The key space is cut into contiguous ranges, and each range
+ * (a shard) has its own TwoFourTree and its own lock, so writers to
+ * different ranges never wait for each other.  A key is routed by binary
+ * search over the shards' lower bounds in a routing table, which is
+ * replaced, never changed, when shards are split or joined.  A caller
+ * that locks a shard the table no longer holds sees it marked retired and
+ * routes again.
+ *
+ * insertAll and removeAll cut a sorted batch at the shard boundaries and
+ * apply the pieces on the common fork/join pool, each with the tree's own
+ * batch method.  iterator() walks the shards in key order, copying a
+ * chunk of entries at a time under the shard's lock; since the ranges do
+ * not overlap, the merged order is simply the shards' orders one after
+ * another.
+ *
+ * rebalance() splits any shard that holds more than twice its share of
+ * the entries (more than its share, while there are fewer shards than
+ * the target), or that took more than twice the average number of writes
+ * since the last call, using TwoFourTree.split at the middle key of the
+ * shard's root.  It joins neighbouring shards that have both gone cold
+ * and small while there are more shards than the target, using
+ * TwoFourTree.join.  Both take time proportional to the height of the
+ * tree, so a shard is locked only briefly; the shard trees keep subtree
+ * counts so that neither leaves a size to be counted afterwards.
+ * startRebalancing runs it periodically on a background thread.
+ */
+public class ShardedTwoFourTree implements Dictionary, Closeable {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    // entries copied per lock acquisition by the iterator
+    private static final int ITERATOR_CHUNK = 1024;
+    // shards smaller than this are never split
+    private static final int MIN_SPLIT_SIZE = 1024;
+    // writes below this many per shard are too few to call a shard hot
+    private static final long MIN_HOT_WRITES = 1024;
+
+    private final Comparator treeComp;
+    private final int targetShards;
+    private final int maxShards;
+    private final LongAdder size = new LongAdder();
+    // shards in key order; replaced as a whole, under rebalanceLock
+    private volatile Shard[] shards;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    private Thread rebalancer;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates an empty dictionary in one shard, which rebalancing splits
+     * into as many shards as there are processors once it has entries
+     * @param comp comparator for the keys
+     */
+    public ShardedTwoFourTree(Comparator comp) {
+        this(comp, DEFAULT_MAX_ITEMS, Runtime.getRuntime().availableProcessors(), new Object[0]);
+    }
+
+    /**
+     * Creates an empty dictionary with shards cut at the given keys
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node of each shard
+     * @param targetShards number of shards rebalancing aims for
+     * @param boundaries keys, in ascending order, at which one shard ends
+     * and the next begins; a boundary key belongs to the later shard
+     * @exception TwoFourTreeException if targetShards is not positive or
+     * the boundaries are not strictly ascending
+     */
+    public ShardedTwoFourTree(Comparator comp, int maxItems, int targetShards,
+            Object[] boundaries) {
+        if (targetShards <= 0) {
+            throw new TwoFourTreeException("Target shard count must be positive");
+        }
+        for (int i = 1; i < boundaries.length; i++) {
+            if (comp.compare(boundaries[i - 1], boundaries[i]) >= 0) {
+                throw new TwoFourTreeException("Shard boundaries are not ascending");
+            }
+        }
+        treeComp = comp;
+        this.targetShards = targetShards;
+        this.maxShards = Math.max(4 * targetShards, boundaries.length + 1);
+        Shard[] table = new Shard[boundaries.length + 1];
+        for (int i = 0; i < table.length; i++) {
+            Object low = (i == 0) ? null : boundaries[i - 1];
+            Object high = (i == boundaries.length) ? null : boundaries[i];
+            TwoFourTree tree = new TwoFourTree(comp, maxItems);
+            //with counts, split and join know the size of each part
+            tree.setSubtreeCounts(true);
+            table[i] = new Shard(low, high, tree);
+        }
+        shards = table;
+    }
+
+    /**
+     * Returns the number of entries
+     * @return size of the dictionary
+     */
+    public int size() {
+        return (int) size.sum();
+    }
+
+    /**
+     * Returns true if the dictionary is empty, and false otherwise
+     * @return whether dictionary is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of shards
+     * @return number of shards in the current routing table
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return element corresponding to key; null if not found
+     */
+    public Object findElement(Object key) {
+        Shard shard = lockShard(key);
+        try {
+            return shard.tree.getOrNull(key);
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if key is present
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(Object key) {
+        Shard shard = lockShard(key);
+        try {
+            return shard.tree.containsKey(key);
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(Object key, Object element) {
+        Shard shard = lockShard(key);
+        try {
+            shard.tree.insertElement(key, element);
+            shard.writes++;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+        size.increment();
+    }
+
+    /**
+     * Stores element under key, replacing the element of an entry already
+     * holding the key
+     * @param key of object to be stored
+     * @param element to be stored
+     * @return element previously stored under key; null if there was none
+     */
+    public Object put(Object key, Object element) {
+        Shard shard = lockShard(key);
+        boolean[] inserted = new boolean[1];
+        Object previous;
+        try {
+            previous = shard.tree.put(key, element, inserted);
+            shard.writes++;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+        if (inserted[0]) {
+            size.increment();
+        }
+        return previous;
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        Shard shard = lockShard(key);
+        Object removed;
+        try {
+            removed = shard.tree.removeElement(key);
+            shard.writes++;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+        size.decrement();
+        return removed;
+    }
+
+    /**
+     * Inserts a batch of entries whose keys are in ascending order, the
+     * part for each shard in parallel with the others
+     * @param keys in ascending order
+     * @param elements matching the keys
+     * @exception TwoFourTreeException if the keys are out of order
+     */
+    public void insertAll(Object[] keys, Object[] elements) {
+        if (keys.length != elements.length) {
+            throw new TwoFourTreeException("insertAll needs one element per key");
+        }
+        checkSorted(keys);
+        applyBatch(keys, elements, 0, keys.length);
+        size.add(keys.length);
+    }
+
+    /**
+     * Removes the entries for a batch of keys in ascending order, the part
+     * for each shard in parallel with the others.  Keys that are not
+     * present are skipped.
+     * @param keys in ascending order
+     * @return number of entries removed
+     * @exception TwoFourTreeException if the keys are out of order
+     */
+    public int removeAll(Object[] keys) {
+        checkSorted(keys);
+        int removed = applyBatch(keys, null, 0, keys.length);
+        size.add(-removed);
+        return removed;
+    }
+
+    /**
+     * Cuts keys[from, to) at the boundaries of the current shards and
+     * inserts the pieces, or removes them when elements is null, in
+     * parallel.  A piece whose shard has been retired in the meantime is
+     * cut again against the newer table.
+     * @return number of entries removed; 0 for inserts
+     */
+    private int applyBatch(Object[] keys, Object[] elements, int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        Shard[] table = shards;
+        int first = route(table, keys[from]);
+        int last = route(table, keys[to - 1]);
+        int[] starts = new int[last - first + 2];
+        starts[0] = from;
+        for (int i = first; i < last; i++) {
+            starts[i - first + 1] = firstAtLeast(keys, starts[i - first], to, table[i].high);
+        }
+        starts[last - first + 1] = to;
+        IntStream pieces = IntStream.rangeClosed(first, last);
+        if (last > first) {
+            pieces = pieces.parallel();
+        }
+        return pieces.map(i -> applyPiece(table[i], keys, elements,
+                starts[i - first], starts[i - first + 1])).sum();
+    }
+
+    private int applyPiece(Shard shard, Object[] keys, Object[] elements, int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        shard.lock.lock();
+        try {
+            if (!shard.retired) {
+                Object[] pieceKeys = Arrays.copyOfRange(keys, from, to);
+                shard.writes += to - from;
+                if (elements == null) {
+                    return shard.tree.removeAll(pieceKeys);
+                }
+                shard.tree.insertAll(pieceKeys, Arrays.copyOfRange(elements, from, to));
+                return 0;
+            }
+        }
+        finally {
+            shard.lock.unlock();
+        }
+        return applyBatch(keys, elements, from, to);
+    }
+
+    private void checkSorted(Object[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (treeComp.compare(keys[i - 1], keys[i]) > 0) {
+                throw new TwoFourTreeException("Batch keys are not sorted");
+            }
+        }
+    }
+
+    /**
+     * Finds the first of keys[from, to) not less than bound
+     * @param bound key to compare against; null for no bound
+     * @return its index, or to if there is none
+     */
+    private int firstAtLeast(Object[] keys, int from, int to, Object bound) {
+        if (bound == null) {
+            return to;
+        }
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (treeComp.compare(keys[mid], bound) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns an iterator over every entry in key order.  It is weakly
+     * consistent: it never fails on concurrent changes, and sees each
+     * chunk of entries as it stood when the chunk was copied.
+     * @return iterator over the entries' Items
+     */
+    public Iterator<Item> iterator() {
+        return new ShardIterator();
+    }
+
+    /**
+     * Splits hot or oversized shards and joins cold neighbours, as
+     * described for the class
+     * @return number of splits and joins made
+     */
+    public int rebalance() {
+        rebalanceLock.lock();
+        try {
+            Shard[] table = shards;
+            int count = table.length;
+            long[] sizes = new long[count];
+            long[] writes = new long[count];
+            long totalSize = 0;
+            long totalWrites = 0;
+            for (int i = 0; i < count; i++) {
+                Shard shard = table[i];
+                shard.lock.lock();
+                try {
+                    sizes[i] = shard.tree.size();
+                    writes[i] = shard.writes;
+                    shard.writes = 0;
+                }
+                finally {
+                    shard.lock.unlock();
+                }
+                totalSize += sizes[i];
+                totalWrites += writes[i];
+            }
+            double shareOfSize = (double) totalSize / targetShards;
+            double averageWrites = (double) totalWrites / count;
+            boolean measurable = totalWrites >= MIN_HOT_WRITES * count;
+
+            int changes = 0;
+            int shardCount = count;
+            boolean[] split = new boolean[count];
+            for (int i = 0; i < count && shardCount < maxShards; i++) {
+                //below the target count, any shard over its share is split
+                double limit = (shardCount < targetShards) ? shareOfSize : 2 * shareOfSize;
+                boolean oversized = sizes[i] > limit;
+                boolean hot = measurable && writes[i] > 2 * averageWrites;
+                if (sizes[i] >= MIN_SPLIT_SIZE && (oversized || hot) && splitShard(table[i])) {
+                    split[i] = true;
+                    shardCount++;
+                    changes++;
+                }
+            }
+            for (int i = 0; i + 1 < count && shardCount > targetShards; i++) {
+                if (split[i] || split[i + 1]) {
+                    continue;
+                }
+                boolean small = sizes[i] + sizes[i + 1] < shareOfSize;
+                boolean cold = writes[i] + writes[i + 1] < averageWrites;
+                if (small && cold && joinShards(table[i], table[i + 1])) {
+                    shardCount--;
+                    changes++;
+                    //the joined shard is not a candidate for another join
+                    i++;
+                }
+            }
+            return changes;
+        }
+        finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Splits a shard at the middle key of its tree's root and publishes a
+     * table holding the two halves in its place
+     * @return false if the shard was too small to split
+     */
+    private boolean splitShard(Shard shard) {
+        shard.lock.lock();
+        try {
+            TFNode root = shard.tree.rootNode();
+            if (root == null || root.getChild(0) == null) {
+                return false;
+            }
+            Object key = root.getItem(root.getNumItems() / 2).key();
+            TwoFourTree[] parts = shard.tree.split(key);
+            Shard left = new Shard(shard.low, key, parts[0]);
+            Shard right = new Shard(key, shard.high, parts[1]);
+            publish(shard, null, left, right);
+            return true;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Joins two neighbouring shards, left then right in key order, and
+     * publishes a table holding the joined shard in their place
+     * @return always true
+     */
+    private boolean joinShards(Shard left, Shard right) {
+        left.lock.lock();
+        right.lock.lock();
+        try {
+            TwoFourTree joined = TwoFourTree.join(left.tree, right.tree);
+            publish(left, right, new Shard(left.low, right.high, joined), null);
+            return true;
+        }
+        finally {
+            right.lock.unlock();
+            left.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces one shard, or two neighbouring ones, with one or two new
+     * shards covering the same range, and retires the old ones.  Called
+     * with rebalanceLock and the old shards' locks held.
+     */
+    private void publish(Shard oldFirst, Shard oldSecond, Shard newFirst, Shard newSecond) {
+        Shard[] table = shards;
+        int index = 0;
+        while (table[index] != oldFirst) {
+            index++;
+        }
+        int removed = (oldSecond == null) ? 1 : 2;
+        int added = (newSecond == null) ? 1 : 2;
+        Shard[] replaced = new Shard[table.length - removed + added];
+        System.arraycopy(table, 0, replaced, 0, index);
+        replaced[index] = newFirst;
+        if (newSecond != null) {
+            replaced[index + 1] = newSecond;
+        }
+        System.arraycopy(table, index + removed, replaced, index + added,
+                table.length - index - removed);
+        shards = replaced;
+        oldFirst.retired = true;
+        if (oldSecond != null) {
+            oldSecond.retired = true;
+        }
+    }
+
+    /**
+     * Starts a daemon thread that calls rebalance periodically, until
+     * close is called
+     * @param periodMillis time between calls
+     * @exception TwoFourTreeException if rebalancing is already running
+     */
+    public synchronized void startRebalancing(long periodMillis) {
+        if (rebalancer != null) {
+            throw new TwoFourTreeException("Rebalancing is already running");
+        }
+        rebalancer = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(periodMillis);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                rebalance();
+            }
+        }, "ShardedTwoFourTree-rebalancer");
+        rebalancer.setDaemon(true);
+        rebalancer.start();
+    }
+
+    /**
+     * Stops the rebalancing thread, if one is running
+     */
+    public synchronized void close() {
+        closed = true;
+        if (rebalancer != null) {
+            rebalancer.interrupt();
+            try {
+                rebalancer.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rebalancer = null;
+        }
+    }
+
+    /**
+     * Locks the shard whose range holds key, routing again if the shard
+     * is retired by the time its lock is taken
+     * @param key to route; null routes to the first shard
+     * @return the locked shard
+     */
+    private Shard lockShard(Object key) {
+        while (true) {
+            Shard[] table = shards;
+            Shard shard = table[(key == null) ? 0 : route(table, key)];
+            shard.lock.lock();
+            if (!shard.retired) {
+                return shard;
+            }
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the shard whose range holds key
+     * @return index of the last shard whose lower bound is not greater
+     * than key
+     */
+    private int route(Shard[] table, Object key) {
+        int low = 1;
+        int high = table.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (treeComp.compare(table[mid].low, key) <= 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * One key range, with the tree and lock that serve it.  low and high
+     * never change; splitting or joining makes new shards.
+     */
+    private static final class Shard {
+        // smallest key of the range, inclusive; null for no lower bound
+        final Object low;
+        // key ending the range, exclusive; null for no upper bound
+        final Object high;
+        final TwoFourTree tree;
+        final ReentrantLock lock = new ReentrantLock();
+        // everything below is guarded by lock
+        boolean retired = false;
+        // writes since the last rebalance
+        long writes = 0;
+
+        Shard(Object low, Object high, TwoFourTree tree) {
+            this.low = low;
+            this.high = high;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * Iterator that copies up to ITERATOR_CHUNK entries at a time from one
+     * shard, then resumes from the last key copied.  A chunk always ends
+     * after the last of a run of equal keys, so resuming skips exactly the
+     * entries equal to that key.
+     */
+    private final class ShardIterator implements Iterator<Item> {
+        private final Item[] buffer = new Item[ITERATOR_CHUNK];
+        private int count = 0;
+        private int next = 0;
+        // key the next chunk starts at; null for the very start
+        private Object resumeKey = null;
+        private boolean skipEqual = false;
+        private boolean finished = false;
+        // chunks may overrun ITERATOR_CHUNK to finish a run of equal keys
+        private Item[] overflow = null;
+
+        public boolean hasNext() {
+            while (next == count && !finished) {
+                fill();
+            }
+            return next < count;
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Item item = (overflow != null) ? overflow[next] : buffer[next];
+            next++;
+            return item;
+        }
+
+        private void fill() {
+            Shard shard = lockShard(resumeKey);
+            try {
+                Item[] items = buffer;
+                int copied = 0;
+                boolean more = false;
+                TwoFourTreeCursor cursor = shard.tree.cursor(resumeKey, null);
+                while (cursor.next()) {
+                    Item item = cursor.item();
+                    if (skipEqual) {
+                        if (treeComp.compare(item.key(), resumeKey) == 0) {
+                            continue;
+                        }
+                        skipEqual = false;
+                    }
+                    if (copied >= ITERATOR_CHUNK && treeComp.compare(item.key(),
+                            items[copied - 1].key()) != 0) {
+                        more = true;
+                        break;
+                    }
+                    if (copied == items.length) {
+                        items = Arrays.copyOf(items, 2 * items.length);
+                    }
+                    items[copied++] = item;
+                }
+                overflow = (items == buffer) ? null : items;
+                count = copied;
+                next = 0;
+                if (more) {
+                    resumeKey = items[copied - 1].key();
+                    skipEqual = true;
+                }
+                else if (shard.high == null) {
+                    finished = true;
+                }
+                else {
+                    resumeKey = shard.high;
+                    skipEqual = false;
+                }
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package termproject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec for String objects, written as a length followed by UTF-8 bytes.
+ *
+ * @version 1.0
+ * File: StringCodec.java
+ */
+public class StringCodec implements Codec {
+
+    public void write(Object value, DataOutput out) throws IOException {
+        if (!(value instanceof String)) {
+            throw new InvalidObjectException("Object not a String");
+        }
+        byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public Object read(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
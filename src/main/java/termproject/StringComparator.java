@@ -0,0 +1,48 @@
+package termproject;
+
+/**
+ * Comparator for String keys, in the order of String.compareTo.
+ *
+ * @version 1.0
+ * File: StringComparator.java
+ */
+
+public class StringComparator implements Comparator {
+
+    public StringComparator() {
+    }
+
+    public int compare (Object obj1, Object obj2) {
+        // the casts do the type check, so isComparable is not called per key
+        try {
+            return ((String) obj1).compareTo ((String) obj2);
+        }
+        catch (ClassCastException | NullPointerException e) {
+            throw new InvalidObjectException ("Object not a string");
+        }
+    }
+
+    public boolean isLessThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) < 0 );
+    }
+
+    public boolean isLessThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) <= 0 );
+    }
+
+    public boolean isGreaterThan (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) > 0 );
+    }
+
+    public boolean isGreaterThanOrEqualTo (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) >= 0 );
+    }
+
+    public boolean isEqual (Object obj1, Object obj2) {
+        return ( compare (obj1, obj2) == 0 );
+    }
+
+    public boolean isComparable (Object obj) {
+        return obj instanceof String;
+    }
+}
@@ -0,0 +1,668 @@
+package termproject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class defines a Two-Four Tree specialized for String keys.
+ *
+ * @version 1.0
+ * File: StringTwoFourTree.java
+ *
+ * Description: Same dictionary behavior as TwoFourTree with a
+ * StringComparator, but every node stores the prefix its keys share once,
+ * and packs the rest of each key into one byte array for the whole node:
+ * one byte per char while every char fits in Latin-1, two otherwise.
+ * Long keys with common prefixes, such as URLs, then cost little more
+ * than their distinct tails, and there are no Item or String objects per
+ * entry.  Each key also keeps its first four chars after the prefix packed
+ * into a long.  A search checks the node's prefix once, packs the same
+ * four chars of the search key, and compares those abbreviations; only
+ * when two abbreviations tie does it read the rest of the key.  Like
+ * LongTwoFourTree, nodes carry no parent pointer and insert and remove
+ * remember their path instead.  The savings grow with the node order,
+ * since a wide node spreads its fixed arrays over more keys; at order 3 a
+ * node costs about as much as the Items and Strings it replaces.
+ */
+public class StringTwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+    // chars packed into an abbreviation
+    private static final int ABBREVIATED_CHARS = 4;
+
+    private final int maxItems;
+    private final int minItems;
+    private int size = 0;
+    private Node treeRoot = null;
+
+    // path remembered by insert and remove; pathIndexes[d] is the child of
+    // pathNodes[d] that the descent went into
+    private Node[] pathNodes = new Node[16];
+    private int[] pathIndexes = new int[16];
+
+    /**
+     * Creates an empty tree holding at most three keys per node
+     */
+    public StringTwoFourTree() {
+        this(DEFAULT_MAX_ITEMS);
+    }
+
+    /**
+     * Creates an empty tree holding at most maxItems keys per node
+     * @param maxItems maximum number of keys in a node; at least 3
+     */
+    public StringTwoFourTree(int maxItems) {
+        if (maxItems < 3) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
+        this.maxItems = maxItems;
+        this.minItems = (maxItems + 2) / 2 - 1;
+    }
+
+    /**
+     * Returns the size of the tree
+     * @return size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tree is empty, and false otherwise
+     * @return whether tree is empty
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Searches dictionary to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public Object findElement(String key) {
+        Node node = treeRoot;
+        while (node != null) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return node.elements[index];
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if key is present in the tree
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(String key) {
+        Node node = treeRoot;
+        while (node != null) {
+            int index = search(node, key);
+            if (index >= 0) {
+                return true;
+            }
+            node = (node.children == null) ? null : node.children[-index - 1];
+        }
+        return false;
+    }
+
+    /**
+     * Inserts provided element into the Dictionary
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    public void insertElement(String key, Object element) {
+        if (treeRoot == null) {
+            treeRoot = new Node(maxItems, true);
+        }
+        Node node = treeRoot;
+        int depth = 0;
+        while (node.children != null) {
+            int index = lowerBound(node, key);
+            pushPath(depth++, node, index);
+            node = node.children[index];
+        }
+        node.insert(lowerBound(node, key), key, element);
+        size++;
+
+        while (node.numItems > maxItems) {
+            node = splitNode(node, depth);
+            depth--;
+        }
+    }
+
+    /**
+     * Searches dictionary to determine if key is present, then
+     * removes and returns corresponding object
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    public Object removeElement(String key) throws ElementNotFoundException {
+        Node node = treeRoot;
+        int depth = 0;
+        int index = -1;
+        while (node != null) {
+            index = search(node, key);
+            if (index >= 0) {
+                break;
+            }
+            if (node.children == null) {
+                node = null;
+                break;
+            }
+            pushPath(depth++, node, -index - 1);
+            node = node.children[-index - 1];
+        }
+        if (node == null) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+
+        Object removed = node.elements[index];
+        if (node.children != null) {
+            // swap with the in-order predecessor, which is always in a leaf
+            Node found = node;
+            pushPath(depth++, node, index);
+            node = node.children[index];
+            while (node.children != null) {
+                pushPath(depth++, node, node.numItems);
+                node = node.children[node.numItems];
+            }
+            int last = node.numItems - 1;
+            found.replaceKey(index, node.key(last), node.elements[last]);
+            node.remove(last);
+        }
+        else {
+            node.remove(index);
+        }
+        size--;
+
+        while (depth > 0 && node.numItems < minItems) {
+            depth--;
+            node = fixUnderflow(pathNodes[depth], pathIndexes[depth]);
+        }
+        if (treeRoot.numItems == 0) {
+            treeRoot = (treeRoot.children == null) ? null : treeRoot.children[0];
+        }
+        return removed;
+    }
+
+    public Object findElement(Object key) {
+        return findElement(stringKey(key));
+    }
+
+    public void insertElement(Object key, Object element) {
+        insertElement(stringKey(key), element);
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        return removeElement(stringKey(key));
+    }
+
+    /**
+     * Adds up the memory the nodes take, counting object headers and
+     * array lengths the way a 64-bit JVM with compressed references lays
+     * them out; elements are not included
+     * @return approximate bytes used by the nodes
+     */
+    public long memoryUsed() {
+        return memoryUsed(treeRoot);
+    }
+
+    private long memoryUsed(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        long total = node.memoryUsed();
+        if (node.children != null) {
+            for (int i = 0; i <= node.numItems; i++) {
+                total += memoryUsed(node.children[i]);
+            }
+        }
+        return total;
+    }
+
+    private static String stringKey(Object key) {
+        if (!(key instanceof String)) {
+            throw new InvalidObjectException("Object not a string");
+        }
+        return (String) key;
+    }
+
+    /**
+     * Splits an overflowed node in two, pushing its middle key into the
+     * parent found on the path (or into a new root)
+     * @param node that holds maxItems + 1 keys
+     * @param depth of node on the remembered path
+     * @return the parent, which may now overflow in turn
+     */
+    private Node splitNode(Node node, int depth) {
+        int mid = (maxItems + 1) / 2;
+        Node sibling = new Node(maxItems, node.children == null);
+        int moved = node.numItems - mid - 1;
+        String[] keys = node.keys();
+        System.arraycopy(node.elements, mid + 1, sibling.elements, 0, moved);
+        if (node.children != null) {
+            System.arraycopy(node.children, mid + 1, sibling.children, 0, moved + 1);
+            Arrays.fill(node.children, mid + 1, node.numItems + 1, null);
+        }
+        sibling.setKeys(keys, mid + 1, moved);
+
+        Object midElement = node.elements[mid];
+        Arrays.fill(node.elements, mid, node.numItems, null);
+        node.setKeys(keys, 0, mid);
+
+        Node parent;
+        int index;
+        if (depth == 0) {
+            parent = new Node(maxItems, false);
+            parent.children[0] = node;
+            treeRoot = parent;
+            index = 0;
+        }
+        else {
+            parent = pathNodes[depth - 1];
+            index = pathIndexes[depth - 1];
+        }
+        parent.insert(index, keys[mid], midElement);
+        parent.children[index + 1] = sibling;
+        return parent;
+    }
+
+    /**
+     * Restores the minimum fill of a child, first by borrowing from an
+     * adjacent sibling and otherwise by fusing it with one
+     * @param parent of the underflowed node
+     * @param index of the underflowed node among the parent's children
+     * @return the parent, which may now underflow in turn
+     */
+    private Node fixUnderflow(Node parent, int index) {
+        Node node = parent.children[index];
+        Node left = (index > 0) ? parent.children[index - 1] : null;
+        Node right = (index < parent.numItems) ? parent.children[index + 1] : null;
+
+        if (left != null && left.numItems > minItems) {
+            if (node.children != null) {
+                System.arraycopy(node.children, 0, node.children, 1, node.numItems + 1);
+                node.children[0] = left.children[left.numItems];
+                left.children[left.numItems] = null;
+            }
+            node.insertKey(0, parent.key(index - 1), parent.elements[index - 1]);
+            int last = left.numItems - 1;
+            parent.replaceKey(index - 1, left.key(last), left.elements[last]);
+            left.remove(last);
+        }
+        else if (right != null && right.numItems > minItems) {
+            int end = node.numItems;
+            node.insertKey(end, parent.key(index), parent.elements[index]);
+            if (node.children != null) {
+                node.children[end + 1] = right.children[0];
+            }
+            parent.replaceKey(index, right.key(0), right.elements[0]);
+            if (right.children != null) {
+                System.arraycopy(right.children, 1, right.children, 0, right.numItems);
+                right.children[right.numItems] = null;
+            }
+            right.remove(0);
+        }
+        else if (left != null) {
+            fuse(parent, index - 1);
+        }
+        else {
+            fuse(parent, index);
+        }
+        return parent;
+    }
+
+    /**
+     * Fuses the children either side of a parent key into the left child,
+     * pulling the parent key down between them
+     */
+    private void fuse(Node parent, int keyIndex) {
+        Node left = parent.children[keyIndex];
+        Node right = parent.children[keyIndex + 1];
+        int end = left.numItems;
+        String[] keys = new String[end + 1 + right.numItems];
+        for (int i = 0; i < end; i++) {
+            keys[i] = left.key(i);
+        }
+        keys[end] = parent.key(keyIndex);
+        for (int i = 0; i < right.numItems; i++) {
+            keys[end + 1 + i] = right.key(i);
+        }
+        left.elements[end] = parent.elements[keyIndex];
+        System.arraycopy(right.elements, 0, left.elements, end + 1, right.numItems);
+        if (left.children != null) {
+            System.arraycopy(right.children, 0, left.children, end + 1, right.numItems + 1);
+        }
+        left.setKeys(keys, 0, keys.length);
+
+        System.arraycopy(parent.children, keyIndex + 2, parent.children, keyIndex + 1,
+                parent.numItems - keyIndex - 1);
+        parent.children[parent.numItems] = null;
+        parent.remove(keyIndex);
+    }
+
+    private void pushPath(int depth, Node node, int index) {
+        if (depth == pathNodes.length) {
+            pathNodes = Arrays.copyOf(pathNodes, depth * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, depth * 2);
+        }
+        pathNodes[depth] = node;
+        pathIndexes[depth] = index;
+    }
+
+    /**
+     * Finds key within a node
+     * @return index of the key, or (-(insertion point) - 1) if not present
+     */
+    private static int search(Node node, String key) {
+        int index = lowerBound(node, key);
+        if (index < node.numItems && key.startsWith(node.prefix)) {
+            int from = node.prefix.length();
+            if (node.compare(index, key, from, abbreviate(key, from)) == 0) {
+                return index;
+            }
+        }
+        return -index - 1;
+    }
+
+    /**
+     * Finds the first key within a node greater than or equal to key.  A
+     * key that does not start with the node's prefix sorts before or after
+     * every key in the node; otherwise the search compares abbreviations.
+     */
+    private static int lowerBound(Node node, String key) {
+        String prefix = node.prefix;
+        int from = prefix.length();
+        int high = node.numItems;
+        if (!key.startsWith(prefix)) {
+            int length = Math.min(from, key.length());
+            for (int i = 0; i < length; i++) {
+                char c = key.charAt(i);
+                char p = prefix.charAt(i);
+                if (c != p) {
+                    return (c < p) ? 0 : high;
+                }
+            }
+            //key is a proper prefix of the node's prefix
+            return 0;
+        }
+        long abbreviation = abbreviate(key, from);
+        if (high <= BINARY_SEARCH_THRESHOLD) {
+            int i = 0;
+            while (i < high && node.compare(i, key, from, abbreviation) < 0) {
+                i++;
+            }
+            return i;
+        }
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (node.compare(mid, key, from, abbreviation) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Packs the first four chars of key from an offset into a long, with
+     * missing chars as zero, so that comparing two abbreviations unsigned
+     * orders them as their chars would
+     */
+    static long abbreviate(String key, int from) {
+        long abbreviation = 0;
+        int end = Math.min(key.length(), from + ABBREVIATED_CHARS);
+        for (int i = from; i < end; i++) {
+            abbreviation |= (long) key.charAt(i) << (16 * (ABBREVIATED_CHARS - 1 - (i - from)));
+        }
+        return abbreviation;
+    }
+
+    /**
+     * Node of a StringTwoFourTree.  Arrays are one bigger than needed so a
+     * node can hold an extra key while it waits to be split.  The suffixes
+     * of the keys, after the shared prefix, lie back to back in chars;
+     * ends[i] is where key i's suffix ends, counted in chars, and it starts
+     * where key i - 1's ends.
+     */
+    static final class Node {
+        private static final byte[] NO_CHARS = new byte[0];
+
+        int numItems = 0;
+        String prefix = "";
+        // one byte per char while every char is Latin-1, two otherwise
+        boolean latin1 = true;
+        byte[] chars = NO_CHARS;
+        int charCount = 0;
+        final int[] ends;
+        final long[] abbreviations;
+        final Object[] elements;
+        final Node[] children;
+
+        Node(int maxItems, boolean leaf) {
+            ends = new int[maxItems + 1];
+            abbreviations = new long[maxItems + 1];
+            elements = new Object[maxItems + 1];
+            children = leaf ? null : new Node[maxItems + 2];
+        }
+
+        int start(int index) {
+            return (index == 0) ? 0 : ends[index - 1];
+        }
+
+        char charAt(int position) {
+            if (latin1) {
+                return (char) (chars[position] & 0xFF);
+            }
+            return (char) (((chars[2 * position] & 0xFF) << 8) | (chars[2 * position + 1] & 0xFF));
+        }
+
+        // rebuilds the full key at index
+        String key(int index) {
+            int start = start(index);
+            int length = ends[index] - start;
+            if (latin1) {
+                return prefix.concat(new String(chars, start, length, StandardCharsets.ISO_8859_1));
+            }
+            char[] suffix = new char[length];
+            for (int i = 0; i < length; i++) {
+                suffix[i] = charAt(start + i);
+            }
+            return prefix.concat(new String(suffix));
+        }
+
+        String[] keys() {
+            String[] keys = new String[numItems];
+            for (int i = 0; i < numItems; i++) {
+                keys[i] = key(i);
+            }
+            return keys;
+        }
+
+        /**
+         * Compares the key at index with key, which must start with the
+         * node's prefix
+         * @param from length of the prefix
+         * @param abbreviation of key after the prefix
+         */
+        int compare(int index, String key, int from, long abbreviation) {
+            long own = abbreviations[index];
+            if (own != abbreviation) {
+                return Long.compareUnsigned(own, abbreviation);
+            }
+            //the abbreviations tie, so read on past them
+            int start = start(index);
+            int length = ends[index] - start;
+            int keyLength = key.length() - from;
+            int shorter = Math.min(length, keyLength);
+            for (int i = Math.min(ABBREVIATED_CHARS, shorter); i < shorter; i++) {
+                char c = charAt(start + i);
+                char other = key.charAt(from + i);
+                if (c != other) {
+                    return c - other;
+                }
+            }
+            return length - keyLength;
+        }
+
+        /**
+         * Replaces the node's keys with count keys from an array, in
+         * ascending order, choosing the longest prefix they share
+         */
+        void setKeys(String[] keys, int offset, int count) {
+            String first = (count == 0) ? "" : keys[offset];
+            String last = (count == 0) ? "" : keys[offset + count - 1];
+            int shared = 0;
+            int limit = Math.min(first.length(), last.length());
+            while (shared < limit && first.charAt(shared) == last.charAt(shared)) {
+                shared++;
+            }
+            prefix = first.substring(0, shared);
+            boolean fits = true;
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                String key = keys[offset + i];
+                total += key.length() - shared;
+                fits = fits && isLatin1(key, shared);
+            }
+            latin1 = fits;
+            chars = new byte[latin1 ? total : 2 * total];
+            charCount = 0;
+            numItems = 0;
+            for (int i = 0; i < count; i++) {
+                append(keys[offset + i]);
+            }
+        }
+
+        // adds a key after the last one; there must be room in chars
+        private void append(String key) {
+            int from = prefix.length();
+            for (int i = from; i < key.length(); i++) {
+                putChar(charCount++, key.charAt(i));
+            }
+            ends[numItems] = charCount;
+            abbreviations[numItems] = abbreviate(key, from);
+            numItems++;
+        }
+
+        private void putChar(int position, char c) {
+            if (latin1) {
+                chars[position] = (byte) c;
+            }
+            else {
+                chars[2 * position] = (byte) (c >>> 8);
+                chars[2 * position + 1] = (byte) c;
+            }
+        }
+
+        private static boolean isLatin1(String key, int from) {
+            for (int i = from; i < key.length(); i++) {
+                if (key.charAt(i) > 0xFF) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // inserts a key, shifting the keys and the children to its right;
+        // the child slot right of the new key is left for the caller to set
+        void insert(int index, String key, Object element) {
+            if (children != null) {
+                System.arraycopy(children, index + 1, children, index + 2, numItems - index);
+            }
+            insertKey(index, key, element);
+        }
+
+        // inserts a key without touching the children
+        void insertKey(int index, String key, Object element) {
+            int moved = numItems - index;
+            System.arraycopy(elements, index, elements, index + 1, moved);
+            elements[index] = element;
+            int from = prefix.length();
+            if (!key.startsWith(prefix) || (latin1 && !isLatin1(key, from))) {
+                //the prefix must shrink or the chars must widen, so rebuild
+                String[] keys = new String[numItems + 1];
+                for (int i = 0; i < index; i++) {
+                    keys[i] = key(i);
+                }
+                keys[index] = key;
+                for (int i = index; i < numItems; i++) {
+                    keys[i + 1] = key(i);
+                }
+                setKeys(keys, 0, keys.length);
+                return;
+            }
+            int length = key.length() - from;
+            int start = start(index);
+            int width = latin1 ? 1 : 2;
+            if ((charCount + length) * width > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max((charCount + length) * width,
+                        chars.length + chars.length / 2));
+            }
+            System.arraycopy(chars, start * width, chars, (start + length) * width,
+                    (charCount - start) * width);
+            for (int i = 0; i < length; i++) {
+                putChar(start + i, key.charAt(from + i));
+            }
+            charCount += length;
+            for (int i = numItems; i > index; i--) {
+                ends[i] = ends[i - 1] + length;
+                abbreviations[i] = abbreviations[i - 1];
+            }
+            ends[index] = start + length;
+            abbreviations[index] = abbreviate(key, from);
+            numItems++;
+        }
+
+        // removes a key without touching the children
+        void remove(int index) {
+            int start = start(index);
+            int length = ends[index] - start;
+            int width = latin1 ? 1 : 2;
+            System.arraycopy(chars, (start + length) * width, chars, start * width,
+                    (charCount - start - length) * width);
+            charCount -= length;
+            for (int i = index; i < numItems - 1; i++) {
+                ends[i] = ends[i + 1] - length;
+                abbreviations[i] = abbreviations[i + 1];
+            }
+            int moved = numItems - index - 1;
+            System.arraycopy(elements, index + 1, elements, index, moved);
+            numItems--;
+            elements[numItems] = null;
+        }
+
+        // replaces a key and its element in place, leaving the children
+        void replaceKey(int index, String key, Object element) {
+            remove(index);
+            insertKey(index, key, element);
+        }
+
+        // bytes of this node, for a 64-bit JVM with compressed references
+        long memoryUsed() {
+            long total = 48;
+            total += align(16 + 4L * ends.length);
+            total += align(16 + 8L * abbreviations.length);
+            total += align(16 + 4L * elements.length);
+            total += align(16 + chars.length);
+            if (children != null) {
+                total += align(16 + 4L * children.length);
+            }
+            //the prefix String and its bytes
+            total += 24 + align(16 + prefix.length());
+            return total;
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package termproject;
 
+import java.util.Arrays;
+
 /**
  * Basic storage element for the 2-4 Tree
  *
@@ -18,17 +20,29 @@ public class TFNode {
 
     private static final int MAX_ITEMS = 3;
 
+    private final int maxItems;
     private int numItems = 0;
+        // entries in this node and everything below it; maintained only by
+        // trees that keep subtree counts
+    private int subtreeSize = 0;
     private TFNode nodeParent;
     private TFNode[] nodeChildren;
     // DMG 3 Dec 09 - changed type to Item
     private Item[] nodeItems;
 
     public TFNode() {
+        this (MAX_ITEMS);
+    }
+
+        // node holding up to maxItems Items, for trees of higher order
+    public TFNode(int maxItems) {
+        if (maxItems < MAX_ITEMS)
+            throw new TFNodeException();
+        this.maxItems = maxItems;
             // make them one bigger than needed, so can handle oversize nodes
             // during inserts
-        nodeChildren = new TFNode[MAX_ITEMS+2];
-        nodeItems = new Item[MAX_ITEMS+1];
+        nodeChildren = new TFNode[maxItems+2];
+        nodeItems = new Item[maxItems+1];
     }
 
     public int getNumItems () {
@@ -36,7 +50,14 @@ public class TFNode {
     }
 
     public int getMaxItems() {
-        return MAX_ITEMS;
+        return maxItems;
+    }
+
+    public int getSubtreeSize() {
+        return subtreeSize;
+    }
+    public void setSubtreeSize (int size) {
+        subtreeSize = size;
     }
 
     public TFNode getParent() {
@@ -53,7 +74,7 @@ public class TFNode {
         // adds, but does not extend array; so it overwrites anything there
     public void addItem (int index, Item data) {
             // always add at end+1; check that you are within array
-        if ( (index < 0) || (index > numItems) || (index > MAX_ITEMS) )
+        if ( (index < 0) || (index > numItems) || (index > maxItems) )
             throw new TFNodeException();
         nodeItems[index] = data;
         numItems++;
@@ -61,7 +82,7 @@ public class TFNode {
         // this function inserts an item into the node, and adjusts into child
         // pointers to add the proper corresponding pointer
     public void insertItem (int index, Item data) {
-        if ( (index < 0) || (index > numItems) || (index > MAX_ITEMS) )
+        if ( (index < 0) || (index > numItems) || (index > maxItems) )
             throw new TFNodeException();
             // adjust Items
         for (int ind=numItems; ind > index; ind--) {
@@ -123,13 +144,60 @@ public class TFNode {
         return returnItem;
     }
 
+        // moves the Items right of index, and the children right of it, into
+        // the empty node sibling, by array copy; the Item at index leaves
+        // this node too and is returned, for the caller to push up
+    public Item splitAt (int index, TFNode sibling) {
+        if ( (index < 0) || (index > (numItems-1) ) || (sibling.numItems != 0) )
+            throw new TFNodeException();
+        int moved = numItems - index - 1;
+        System.arraycopy(nodeItems, index+1, sibling.nodeItems, 0, moved);
+        System.arraycopy(nodeChildren, index+1, sibling.nodeChildren, 0, moved+1);
+        for (int ind=0; ind <= moved; ind++) {
+            if (sibling.nodeChildren[ind] != null)
+                sibling.nodeChildren[ind].nodeParent = sibling;
+        }
+        Item middle = nodeItems[index];
+        Arrays.fill(nodeItems, index, numItems, null);
+        Arrays.fill(nodeChildren, index+1, numItems+1, null);
+        sibling.numItems = moved;
+        numItems = index;
+        return middle;
+    }
+
+        // appends separator and then all of right's Items and children to
+        // this node, by array copy; right is left as it was, for the caller
+        // to unlink and drop
+    public void absorb (Item separator, TFNode right) {
+        int total = numItems + 1 + right.numItems;
+        if (total > maxItems)
+            throw new TFNodeException();
+        nodeItems[numItems] = separator;
+        System.arraycopy(right.nodeItems, 0, nodeItems, numItems+1, right.numItems);
+        System.arraycopy(right.nodeChildren, 0, nodeChildren, numItems+1, right.numItems+1);
+        for (int ind=numItems+1; ind <= total; ind++) {
+            if (nodeChildren[ind] != null)
+                nodeChildren[ind].nodeParent = this;
+        }
+        numItems = total;
+    }
+
+        // empties the node so it can be used again
+    public void clear () {
+        Arrays.fill(nodeItems, null);
+        Arrays.fill(nodeChildren, null);
+        nodeParent = null;
+        numItems = 0;
+        subtreeSize = 0;
+    }
+
     public TFNode getChild (int index) {
-        if ( (index < 0) || (index > (MAX_ITEMS+1)) )
+        if ( (index < 0) || (index > (maxItems+1)) )
             throw new TFNodeException();
         return nodeChildren[index];
     }
     public void setChild (int index, TFNode child) {
-        if ( (index < 0) || (index > (MAX_ITEMS+1)) )
+        if ( (index < 0) || (index > (maxItems+1)) )
             throw new TFNodeException();
         nodeChildren[index] = child;
     }
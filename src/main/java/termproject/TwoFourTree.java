@@ -1,6 +1,18 @@
 package termproject;
 
 import java.awt.RenderingHints;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class defines a Two-Four Tree that implements the Dictionary interface.
@@ -23,16 +35,102 @@ import java.awt.RenderingHints;
  * and removes an element from the tree, returning it.
  */
 public class TwoFourTree implements Dictionary {
+    private static final int DEFAULT_MAX_ITEMS = 3;
+    // nodes with more items than this are searched with binary search
+    private static final int BINARY_SEARCH_THRESHOLD = 8;
+    // most nodes kept for reuse while node recycling is on
+    private static final int FREE_LIST_CAPACITY = 256;
+    // element of an Item removed lazily, until compaction takes it out
+    private static final Object TOMBSTONE = new Object();
+    // tombstones compacted by each lazy remove once they pass a quarter of
+    // the entries in the tree
+    private static final int COMPACTION_SLICE = 2;
+
     private Comparator treeComp;
     private int size = 0;
+    // set when a split leaves size unknown; size() then counts the entries
+    private boolean sizeStale = false;
     private TFNode treeRoot = null;
+    private final int maxItems;
+    private final int minItems;
+    // bumped by every change, so cursors can tell they have gone stale
+    private int modCount = 0;
+    // whether every node tracks the number of entries in its subtree
+    private boolean countSubtrees = false;
+    // operation counters; null while metrics are off
+    private TwoFourTreeMetrics metrics = null;
+    // nodes dropped by fusions, kept for splits to reuse; null while
+    // recycling is off
+    private TFNode[] freeNodes = null;
+    private int freeCount = 0;
+    // whether inserts and removes restructure on the way down
+    private boolean topDown = false;
+    // whether findElement and insertElement start from the finger
+    private boolean fingerEnabled = false;
+    // the finger: the last path walked from the root, with the range of
+    // keys each node on it covers; only valid while fingerModCount matches
+    // modCount
+    private TFNode[] fingerNodes = null;
+    private int[] fingerIndexes = null;
+    private Object[] fingerLow = null;
+    private Object[] fingerHigh = null;
+    private int fingerDepth = 0;
+    private int fingerModCount = 0;
+    // hot keys and their Items; null while the cache is off
+    private LookupCache lookupCache = null;
+    // the cursor insertAfter last moved, which shares the finger's path
+    // above fingerChangedFrom
+    private TwoFourTreeCursor fingerCursor = null;
+    private int fingerChangedFrom = 0;
+    // where the last walk of locate ended: the node holding the key, or
+    // the leaf a new entry for it belongs in, and the index there
+    private TFNode locatedNode = null;
+    private int locatedIndex = 0;
+    private int locatedModCount = 0;
+    // tombstoned Items in the order they were removed; null while lazy
+    // deletion is off.  An Item put back in place stays queued, and
+    // compaction passes over it.
+    private ArrayDeque<Item> tombstones = null;
+    // tombstones still in the tree; size counts only live entries
+    private int tombstoneCount = 0;
     
     /**
      * Sets the comparator to use when comparing keys
      * @param comp 
      */
     public TwoFourTree(Comparator comp) {
+        this(comp, DEFAULT_MAX_ITEMS);
+    }
+    /**
+     * Sets the comparator and the order of the tree.  An order of 3 gives the
+     * classic 2-4 tree; larger orders give a B-tree whose nodes hold up to
+     * maxItems items, which makes the tree shallower.
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node; at least 3
+     */
+    public TwoFourTree(Comparator comp, int maxItems) {
+        if (maxItems < DEFAULT_MAX_ITEMS) {
+            throw new TwoFourTreeException("Nodes must hold at least 3 items");
+        }
         treeComp = comp;
+        this.maxItems = maxItems;
+        // a node split from an overflowed node never holds fewer than this
+        this.minItems = (maxItems + 2) / 2 - 1;
+    }
+    /**
+     * Orders keys with a java.util.Comparator instead of a tree Comparator
+     * @param comp comparator for the keys
+     */
+    public <K> TwoFourTree(java.util.Comparator<? super K> comp) {
+        this(new JavaComparatorAdapter<K>(comp));
+    }
+    /**
+     * Orders keys with a java.util.Comparator, using nodes of the given order
+     * @param comp comparator for the keys
+     * @param maxItems maximum number of items in a node; at least 3
+     */
+    public <K> TwoFourTree(java.util.Comparator<? super K> comp, int maxItems) {
+        this(new JavaComparatorAdapter<K>(comp), maxItems);
     }
     /**
      * Returns the root of the tree
@@ -53,6 +151,10 @@ public class TwoFourTree implements Dictionary {
      * @return size of the tree
      */
     public int size() {
+        if (sizeStale) {
+            size = countItems(root()) - tombstoneCount;
+            sizeStale = false;
+        }
         return size;
     }
     /**
@@ -60,7 +162,28 @@ public class TwoFourTree implements Dictionary {
      * @return whether tree is empty
      */
     public boolean isEmpty() {
-        return (size == 0);
+        if (tombstoneCount > 0) {
+            return size() == 0;
+        }
+        return (root() == null);
+    }
+    /**
+     * Returns the maximum number of items a node of this tree holds
+     * @return order of the tree
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+    /**
+     * Returns the number of levels in the tree; every leaf is at this depth
+     * @return height of the tree, 0 if empty
+     */
+    public int height() {
+        int height = 0;
+        for (TFNode node = root(); node != null; node = node.getChild(0)) {
+            height++;
+        }
+        return height;
     }
 
     /**
@@ -68,147 +191,245 @@ public class TwoFourTree implements Dictionary {
      * @param key to be searched for
      * @return object corresponding to key; null if not found
      */
-    public Object findElement(Object key) throws ElementNotFoundException{
-        //get root and start walking down tree
-        TFNode node = FFGTENode(root(), key);
-        if (node == null) {
-            throw new ElementNotFoundException();
+    public Object findElement(Object key) {
+        if (lookupCache == null) {
+            return searchItem(key);
         }
-        int index = findFirstGreaterThanOrEqualTo(node, key);
-        return node.getItem(index);
+        Item cached = lookupCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Item found = searchItem(key);
+        if (found != null) {
+            lookupCache.put(found);
+        }
+        return found;
+    }
+
+    /**
+     * Walks the tree for the Item with key, bypassing the lookup cache
+     * @param key to be searched for
+     * @return the Item with the key; null if not found
+     */
+    private Item searchItem(Object key) {
+        Item found;
+        if (fingerEnabled && root() != null) {
+            found = fingerFind(key);
+        }
+        else {
+            //get root and start walking down tree
+            TFNode node = FFGTENode(root(), key);
+            if (node == null) {
+                return null;
+            }
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            found = node.getItem(index);
+        }
+        if (found != null && found.element() == TOMBSTONE) {
+            return liveDuplicate(key);
+        }
+        return found;
     }
     
     /**
-     * Corrects an overflowed node to three or less elements
-     * @param node 
+     * Corrects an overflowed node by splitting it around its middle item,
+     * which moves up into the parent
+     * @param node holding one item more than the maximum
      */
     private void fixOverflow(TFNode node) {
         //get current node being passed in
         TFNode parent = node.getParent();
         if (parent == null) {
-            parent = new TFNode();
+            parent = newNode();
+            parent.setChild(0, node);
+            node.setParent(parent);
             setRoot(parent);
-            
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
         }
-        int index = findFirstGreaterThanOrEqualTo(parent, node.getItem(2).key());
-        parent.insertItem(index, node.getItem(2));
+        int index = whatChildIsThis(parent, node);
 
-        //get the 4th item and make new node of its
-        TFNode sibling = new TFNode();
-        sibling.insertItem(0, node.getItem(3));
-        
-        parent.setChild(index, node);
+        //items and children right of the middle item move to a new sibling
+        TFNode sibling = newNode();
+        if (metrics != null) {
+            metrics.countSplits(1);
+        }
+        Item midItem = node.splitAt(node.getNumItems() / 2, sibling);
+
+        parent.insertItem(index, midItem);
         parent.setChild(index + 1, sibling);
-        
         sibling.setParent(parent);
-        node.setParent(parent);
-
-        //set the children into correct positions
-        if(node.getChild(3) != null){
-            sibling.setChild(0, node.getChild(3));
-            sibling.getChild(0).setParent(sibling);
-        }
-        if(node.getChild(4) != null){
-            sibling.setChild(1, node.getChild(4));
-            sibling.getChild(1).setParent(sibling);
-        }
-        TFNode thirdChild = node.getChild(2);
-        node.removeItem(2);
-        node.removeItem(2);
-        
-        node.setChild(2, thirdChild);
+        recount(node);
+        recount(sibling);
+        recount(parent);
         
         //if parent is full, we have to fixoverflow on parent as well
-        if (parent.getNumItems() == 4) {
+        if (parent.getNumItems() > maxItems) {
             fixOverflow(parent);
         }
     }
     /**
-     * Corrects an underflowed node to more than one element
-     * @param node 
+     * Corrects an underflowed node, first by transferring items through the
+     * parent from an adjacent sibling that can spare them, and otherwise by
+     * fusing it with a sibling.  A node short by several items (after a
+     * batch removal) always fits into a fusion when no transfer is possible.
+     * @param node holding fewer items than the minimum
      */
     private void fixUnderflow(TFNode node) {
         TFNode parent = node.getParent();
+        if (parent == null) {
+            //an empty root gives way to its only child
+            if (node.getNumItems() == 0) {
+                shrinkRoot(node);
+            }
+            return;
+        }
         int thisIndex = whatChildIsThis(parent, node);
-        TFNode s;
-        TFNode childFromS;
-        Item keyFromS;
-        Item keyFromParent;
-        //If either of these are true, we do a transfer operation
-        if (thisIndex > 0 &&
-                thisIndex < 4 &&
-                parent.getNumItems() > 1 &&
-                parent.getChild(thisIndex + 1).getNumItems() >= 2) {
-            s = parent.getChild(thisIndex + 1);
-            childFromS = s.getChild(s.getNumItems());
-            keyFromS = s.removeItem(s.getNumItems()-1);
-            keyFromParent = parent.removeItem(parent.getNumItems() - 1);
-            node.insertItem(node.getNumItems(), keyFromParent);
-            parent.insertItem(parent.getNumItems() - 1, keyFromS);
-            node.setChild(0, childFromS);
-            childFromS.setParent(node);
-        }
-        else if (thisIndex < 4 &&
-                thisIndex > 0 &&
-                parent.getNumItems() > 1 &&
-                parent.getChild(thisIndex - 1).getNumItems() >= 2) {
-            s = parent.getChild(thisIndex - 1);
-            childFromS = s.getChild(0);
-            keyFromS = s.removeItem(0);
-            keyFromParent = parent.removeItem(0);
-            node.insertItem(0, keyFromParent);
-            parent.insertItem(0, keyFromS);
-            node.setChild(1, childFromS);
-            childFromS.setParent(node);
+        TFNode left = (thisIndex > 0) ? parent.getChild(thisIndex - 1) : null;
+        TFNode right = (thisIndex < parent.getNumItems())
+                ? parent.getChild(thisIndex + 1) : null;
+
+        //If either sibling can spare the missing items, we transfer them
+        //one at a time through the parent
+        int needed = minItems - node.getNumItems();
+        if (left != null && left.getNumItems() - needed >= minItems) {
+            transferFromLeft(parent, thisIndex, needed);
+        }
+        else if (right != null && right.getNumItems() - needed >= minItems) {
+            transferFromRight(parent, thisIndex, needed);
         }
         //Otherwise we do a fusion operation
         else {
-            
-            //New node created to merge current node and a sibling
-            TFNode mergeNode;
-            if (thisIndex == 0) {
-                keyFromParent = parent.getItem(0);
-                node.insertItem(0, keyFromParent);
-                mergeNode = mergeNodes(node, parent.getChild(1));
-                parent.setChild(thisIndex + 1, mergeNode);
-                mergeNode.setParent(parent);
-                parent.removeItem(0);
+            int separator = (left != null) ? thisIndex - 1 : thisIndex;
+            fuseChildren(parent, separator);
+
+            if (parent == root()) {
+                if (parent.getNumItems() == 0) {
+                    shrinkRoot(parent);
+                }
             }
-            else {
-                keyFromParent = parent.getItem(parent.getNumItems() - 1);
-                node.addItem(0, keyFromParent);
-                mergeNode = mergeNodes(node, parent.getChild(thisIndex - 1));
-                parent.setChild(parent.getNumItems(), mergeNode);
-                mergeNode.setParent(parent);
-                parent.removeItem(parent.getNumItems() - 1);
+            else if (parent.getNumItems() < minItems) {
+                fixUnderflow(parent);
             }
-            if (parent.getNumItems() == 0) {
-                if (parent == root()) {
-                    setRoot(mergeNode);
-                }
-                else {
-                    fixUnderflow(parent);
-                }
+        }
+    }
+
+    /**
+     * Moves items from a child's left sibling through the parent into the
+     * child, each with the subtree that goes with it
+     * @param parent of the child
+     * @param index of the child among the parent's children
+     * @param count number of items to move
+     */
+    private void transferFromLeft(TFNode parent, int index, int count) {
+        TFNode node = parent.getChild(index);
+        TFNode left = parent.getChild(index - 1);
+        if (metrics != null) {
+            metrics.countTransfer();
+        }
+        for (int moved = 0; moved < count; moved++) {
+            int last = left.getNumItems() - 1;
+            TFNode childFromS = left.getChild(last + 1);
+            Item keyFromS = left.deleteItem(last);
+            left.setChild(last + 1, null);
+            Item keyFromParent = parent.replaceItem(index - 1, keyFromS);
+            node.insertItem(0, keyFromParent);
+            node.setChild(0, childFromS);
+            if (childFromS != null) {
+                childFromS.setParent(node);
             }
         }
+        recount(left);
+        recount(node);
     }
 
-    public TFNode mergeNodes(TFNode nodeOne, TFNode nodeTwo) {
-        TFNode mergeNode = new TFNode();
-        for (int i = 0; i < nodeOne.getNumItems(); i++) {
-            Item currentItem = nodeOne.getItem(i);
-            int currentIndex = findFirstGreaterThanOrEqualTo(
-                    mergeNode, currentItem.key());
-            mergeNode.insertItem(currentIndex, currentItem);
+    /**
+     * Moves items from a child's right sibling through the parent into the
+     * child, each with the subtree that goes with it
+     * @param parent of the child
+     * @param index of the child among the parent's children
+     * @param count number of items to move
+     */
+    private void transferFromRight(TFNode parent, int index, int count) {
+        TFNode node = parent.getChild(index);
+        TFNode right = parent.getChild(index + 1);
+        if (metrics != null) {
+            metrics.countTransfer();
+        }
+        for (int moved = 0; moved < count; moved++) {
+            TFNode childFromS = right.getChild(0);
+            Item keyFromS = right.removeItem(0);
+            Item keyFromParent = parent.replaceItem(index, keyFromS);
+            node.addItem(node.getNumItems(), keyFromParent);
+            node.setChild(node.getNumItems(), childFromS);
+            if (childFromS != null) {
+                childFromS.setParent(node);
+            }
         }
-        for (int i = 0; i < nodeTwo.getNumItems(); i++) {
-            Item currentItem = nodeTwo.getItem(i);
-            int currentIndex = findFirstGreaterThanOrEqualTo(
-                    mergeNode, currentItem.key());
-            mergeNode.insertItem(currentIndex, currentItem);
+        recount(right);
+        recount(node);
+    }
+
+    /**
+     * Fuses the children either side of a parent item, and the item
+     * itself, into the left child
+     * @param parent of the two children
+     * @param separator index of the item between them
+     * @return the fused node
+     */
+    private TFNode fuseChildren(TFNode parent, int separator) {
+        TFNode leftNode = parent.getChild(separator);
+        TFNode rightNode = parent.getChild(separator + 1);
+        TFNode mergeNode = mergeNodes(leftNode, parent.getItem(separator), rightNode);
+        parent.removeItem(separator);
+        parent.setChild(separator, mergeNode);
+        mergeNode.setParent(parent);
+        discardNode(rightNode);
+        if (metrics != null) {
+            metrics.countFusion();
         }
         return mergeNode;
     }
+
+    /**
+     * Replaces an empty root with its only child, or empties the tree
+     * @param oldRoot root that has no items left
+     */
+    private void shrinkRoot(TFNode oldRoot) {
+        TFNode child = oldRoot.getChild(0);
+        if (child != null) {
+            child.setParent(null);
+        }
+        setRoot(child);
+        discardNode(oldRoot);
+        if (metrics != null) {
+            metrics.countRootShrink();
+        }
+    }
+
+    /**
+     * Fuses two adjacent siblings and the parent item that separates them
+     * into the left sibling.  The items are already in order, so they are
+     * moved across by array copy; the right sibling is left for the caller
+     * to unlink.
+     * @param nodeOne left sibling, which receives everything
+     * @param separator item between the siblings in their parent
+     * @param nodeTwo right sibling
+     * @return the merged node, nodeOne
+     */
+    public TFNode mergeNodes(TFNode nodeOne, Item separator, TFNode nodeTwo) {
+        nodeOne.absorb(separator, nodeTwo);
+        recount(nodeOne);
+        return nodeOne;
+    }
+
+    private void adoptChild(TFNode parent, int index, TFNode child) {
+        parent.setChild(index, child);
+        if (child != null) {
+            child.setParent(parent);
+        }
+    }
     
     /**
      * Inserts provided element into the Dictionary
@@ -216,13 +437,36 @@ public class TwoFourTree implements Dictionary {
      * @param element to be inserted
      */
     public void insertElement(Object key, Object element) {
+        if (tombstoneCount > 0) {
+            //reuse a tombstone of the key rather than piling up duplicates
+            Item found = locate(key, false);
+            if (found == null) {
+                insertAtLocation(key, element);
+                return;
+            }
+            if (found.element() == TOMBSTONE) {
+                revive(found, element);
+                return;
+            }
+        }
+        if (topDown) {
+            topDownInsert(key, element);
+            return;
+        }
+        if (fingerEnabled && root() != null) {
+            fingerInsert(fingerLevel(key, true), new Item(key, element));
+            return;
+        }
         TFNode previousNode = null;
         TFNode currentNode = root();
         
         //if root hasnt been set then make new tfnode and set it to root
         if(currentNode == null){
-            currentNode = new TFNode();
+            currentNode = newNode();
             setRoot(currentNode);
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
         }
         
         int currentIndex = 0;
@@ -234,7 +478,10 @@ public class TwoFourTree implements Dictionary {
         }
         
         previousNode.insertItem(currentIndex, new Item (key, element));
-        if (previousNode.getNumItems() == 4) {
+        adjustCounts(previousNode, 1);
+        size++;
+        modCount++;
+        if (previousNode.getNumItems() > maxItems) {
             fixOverflow(previousNode);
         }
     }
@@ -247,10 +494,25 @@ public class TwoFourTree implements Dictionary {
      * @return the first item greater than or equal to the current key
      */
     private int findFirstGreaterThanOrEqualTo(TFNode T, Object key) {
+        int numItems = T.getNumItems();
+        if (numItems > BINARY_SEARCH_THRESHOLD) {
+            int low = 0;
+            int high = numItems;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (treeComp.compare(T.getItem(mid).key(), key) >= 0) {
+                    high = mid;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
         int i;
-        for(i = 0; i < T.getNumItems(); i++){
+        for(i = 0; i < numItems; i++){
             Object k = T.getItem(i).key();
-            if (treeComp.isGreaterThanOrEqualTo(k, key)) {
+            if (treeComp.compare(k, key) >= 0) {
                 return i;
             }
         }
@@ -267,14 +529,51 @@ public class TwoFourTree implements Dictionary {
         if(current == null) {
             return null;
         }
-        int index = findFirstGreaterThanOrEqualTo(current, key);
-        if (index == current.getNumItems()) {
-            return FFGTENode(current.getChild(index), key);
+        int index = searchNode(current, key);
+        if (index >= 0) {
+            return current;
+        }
+        return FFGTENode(current.getChild(-index - 1), key);
+    }
+
+    /**
+     * Looks for key among the items of a single node.  One compare per item
+     * visited decides both "greater or equal" and "equal".
+     * @param T node being searched
+     * @param key being compared
+     * @return index of an item equal to key, or (-(index of the first
+     * greater item) - 1) when there is none
+     */
+    private int searchNode(TFNode T, Object key) {
+        int numItems = T.getNumItems();
+        int low = 0;
+        if (numItems > BINARY_SEARCH_THRESHOLD) {
+            int high = numItems;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int result = treeComp.compare(T.getItem(mid).key(), key);
+                if (result == 0) {
+                    return mid;
+                }
+                if (result > 0) {
+                    high = mid;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return -low - 1;
         }
-        if(treeComp.isEqual(current.getItem(index).key(), key)) {
-           return current;
+        for (; low < numItems; low++) {
+            int result = treeComp.compare(T.getItem(low).key(), key);
+            if (result == 0) {
+                return low;
+            }
+            if (result > 0) {
+                break;
+            }
         }
-        return FFGTENode(current.getChild(index), key);
+        return -low - 1;
     }
     
     /**
@@ -285,8 +584,7 @@ public class TwoFourTree implements Dictionary {
      */
     private int whatChildIsThis(TFNode T, TFNode child) throws TFNodeException {
         int i;
-        for (i = 0; i < T.getNumItems(); i++) {
-            //Probably need to reimplement to check the keys/values inside both
+        for (i = 0; i <= T.getNumItems(); i++) {
             if (T.getChild(i) == child) {
                 return i;
             }
@@ -302,101 +600,2206 @@ public class TwoFourTree implements Dictionary {
      * @exception ElementNotFoundException if the key is not in dictionary
      */
     public Object removeElement(Object key) throws ElementNotFoundException {
+        if (tombstones != null) {
+            Item found = searchItem(key);
+            if (found == null) {
+                throw new ElementNotFoundException("Element specified was not found");
+            }
+            return markRemoved(found);
+        }
+        if (topDown) {
+            return topDownRemove(key);
+        }
         TFNode removeFromNode;
         removeFromNode = FFGTENode(root(), key);
         if (removeFromNode == null) {
             throw new ElementNotFoundException("Element specified was not found");
         }
         int currentIndex = findFirstGreaterThanOrEqualTo(removeFromNode, key);
-        TFNode child = removeFromNode.getChild(currentIndex);
+        size--;
+        return removeAt(removeFromNode, currentIndex).element();
+    }
+
+    /**
+     * Removes the Item at an index of a node found by a search, swapping
+     * in its predecessor if the node is internal, and repairs underflow
+     * bottom-up.  The caller adjusts size.
+     * @param removeFromNode node holding the Item
+     * @param currentIndex of the Item in the node
+     * @return the Item removed
+     */
+    private Item removeAt(TFNode removeFromNode, int currentIndex) {
+        Item removed;
         TFNode previousNode = removeFromNode;
-        while (child != null) {
-            previousNode = child.getParent();
-            child = child.getChild(child.getNumItems());
+        if (removeFromNode.getChild(0) == null) {
+            removed = removeFromNode.removeItem(currentIndex);
         }
-        int toReturn;
-        if (previousNode != removeFromNode) {
+        else {
+            //swap with the in-order predecessor, which is always in a leaf
+            previousNode = removeFromNode.getChild(currentIndex);
+            while (previousNode.getChild(0) != null) {
+                previousNode = previousNode.getChild(previousNode.getNumItems());
+            }
             Item childItem = previousNode.removeItem(previousNode.getNumItems() - 1);
-            toReturn = (Integer)removeFromNode.replaceItem(currentIndex, childItem).element();
+            removed = removeFromNode.replaceItem(currentIndex, childItem);
         }
-        else if (previousNode == root()) {
-            TFNode mergeNode = mergeNodes(removeFromNode.getChild(currentIndex), removeFromNode.getChild(currentIndex + 1));
-            removeFromNode.setChild(currentIndex + 1, mergeNode);
-            mergeNode.setParent(removeFromNode);
-            toReturn = (Integer)removeFromNode.removeItem(currentIndex).element();
+        if (lookupCache != null) {
+            lookupCache.invalidate(removed.key());
         }
-        else {
-            toReturn = (Integer)removeFromNode.removeItem(currentIndex).element();
-        }
-        if (previousNode.getNumItems() == 0) {
-            System.out.println("UNDERFLOW!");
+        adjustCounts(previousNode, -1);
+        modCount++;
+        if (previousNode.getNumItems() < minItems) {
             fixUnderflow(previousNode);
         }
         
-        return toReturn;
+        return removed;
     }
 
-    public static void main(String[] args) {
-        Comparator myComp = new IntegerComparator();
-        TwoFourTree myTree = new TwoFourTree(myComp);
+    /**
+     * Returns the element stored under key, without throwing or
+     * allocating when the key is absent
+     * @param key to be searched for
+     * @return element corresponding to key; null if not found
+     */
+    public Object getOrNull(Object key) {
+        Item found = (Item) findElement(key);
+        return (found == null) ? null : found.element();
+    }
 
-        Integer myInt1 = new Integer(47);
-        myTree.insertElement(myInt1, myInt1);
-        Integer myInt2 = new Integer(83);
-        myTree.insertElement(myInt2, myInt2);
-        Integer myInt3 = new Integer(22);
-        myTree.insertElement(myInt3, myInt3);
+    /**
+     * Returns true if key is present in the tree
+     * @param key to be searched for
+     * @return whether the key is present
+     */
+    public boolean containsKey(Object key) {
+        return findElement(key) != null;
+    }
 
-        Integer myInt4 = new Integer(16);
-        myTree.insertElement(myInt4, myInt4);
+    /**
+     * Stores element under key, replacing the element of an entry already
+     * holding the key in place, and inserting a new entry otherwise.  One
+     * descent finds either the entry or the leaf a new entry goes in.
+     * Replacing keeps the same Item, so the lookup cache and any cursor on
+     * it stay valid.  If insertElement has added the key more than once,
+     * only one of those entries is replaced.
+     * @param key of object to be stored
+     * @param element to be stored
+     * @return element previously stored under key; null if there was none
+     */
+    public Object put(Object key, Object element) {
+        return put(key, element, null);
+    }
 
-        Integer myInt5 = new Integer(49);
-        myTree.insertElement(myInt5, myInt5);
+    // put, also setting inserted[0], when inserted is given, to whether the
+    // key was absent so that a new entry was made
+    Object put(Object key, Object element, boolean[] inserted) {
+        Item found = locate(key, true);
+        boolean live = found != null && found.element() != TOMBSTONE;
+        if (inserted != null) {
+            inserted[0] = !live;
+        }
+        if (live) {
+            Object previous = found.element();
+            found.setElement(element);
+            return previous;
+        }
+        if (found != null) {
+            revive(found, element);
+        }
+        else {
+            insertAtLocation(key, element);
+        }
+        return null;
+    }
 
-        Integer myInt6 = new Integer(100);
-        myTree.insertElement(myInt6, myInt6);
+    /**
+     * Stores element under key only if the key is absent
+     * @param key of object to be stored
+     * @param element to be stored
+     * @return element already stored under key, in which case the tree is
+     * unchanged; null if element was inserted
+     */
+    public Object putIfAbsent(Object key, Object element) {
+        Item found = locate(key, true);
+        if (found != null && found.element() == TOMBSTONE) {
+            revive(found, element);
+            return null;
+        }
+        if (found != null) {
+            return found.element();
+        }
+        insertAtLocation(key, element);
+        return null;
+    }
 
-        Integer myInt7 = new Integer(38);
-        myTree.insertElement(myInt7, myInt7);
+    /**
+     * Replaces the element stored under key with the result of a function
+     * of the key and that element, or of the key and null when the key is
+     * absent.  A null result removes the entry, or leaves the key absent.
+     * @param key of object to be computed
+     * @param function from the key and the current element to the new one;
+     * it must not change the tree
+     * @return the new element; null if there is none
+     * @exception TwoFourTreeException if function changed the tree
+     */
+    public Object compute(Object key, BiFunction<Object, Object, Object> function) {
+        Item found = locate(key, false);
+        boolean live = found != null && found.element() != TOMBSTONE;
+        Object element = function.apply(key, live ? found.element() : null);
+        return store(key, found, live, element);
+    }
 
-        Integer myInt8 = new Integer(3);
-        myTree.insertElement(myInt8, myInt8);
+    /**
+     * Stores element under key if the key is absent, and otherwise the
+     * result of a function of the current element and element.  A null
+     * result removes the entry.
+     * @param key of object to be merged
+     * @param element to be stored or merged in; must not be null
+     * @param function from the current element and element to the new one
+     * @return the new element; null if the entry was removed
+     * @exception TwoFourTreeException if element is null, or if function
+     * changed the tree
+     */
+    public Object merge(Object key, Object element, BinaryOperator<Object> function) {
+        if (element == null) {
+            throw new TwoFourTreeException("Cannot merge a null element");
+        }
+        Item found = locate(key, false);
+        boolean live = found != null && found.element() != TOMBSTONE;
+        Object merged = live ? function.apply(found.element(), element) : element;
+        return store(key, found, live, merged);
+    }
 
-        Integer myInt9 = new Integer(53);
-        myTree.insertElement(myInt9, myInt9);
+    // finishes compute or merge once the new element is known, at the
+    // location locate found; live tells whether found held an entry or
+    // only a tombstone
+    private Object store(Object key, Item found, boolean live, Object element) {
+        if (modCount != locatedModCount
+                || (found != null && live == (found.element() == TOMBSTONE))) {
+            throw new TwoFourTreeException("Tree changed during compute");
+        }
+        if (!live) {
+            if (element == null) {
+                return null;
+            }
+            if (found != null) {
+                revive(found, element);
+            }
+            else {
+                insertAtLocation(key, element);
+            }
+        }
+        else if (element != null) {
+            found.setElement(element);
+        }
+        else if (tombstones != null) {
+            markRemoved(found);
+        }
+        else {
+            size--;
+            removeAt(locatedNode, locatedIndex);
+        }
+        return element;
+    }
 
-        Integer myInt10 = new Integer(66);
-        myTree.insertElement(myInt10, myInt10);
+    /**
+     * Finds the entry holding key.  When the tree walk runs, it leaves
+     * locatedNode and locatedIndex on the entry, or on the leaf and index
+     * where a new entry for key belongs.
+     * @param key to be searched for
+     * @param useCache whether a cache hit may stand in for the walk, which
+     * then leaves locatedNode unset
+     * @return the Item holding the key; a tombstone for the key if there is
+     * no live entry but a tombstone to reuse; null if neither is found
+     */
+    private Item locate(Object key, boolean useCache) {
+        locatedNode = null;
+        locatedModCount = modCount;
+        if (useCache && lookupCache != null) {
+            Item cached = lookupCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        TFNode node = root();
+        while (node != null) {
+            int index = searchNode(node, key);
+            if (index >= 0) {
+                locatedNode = node;
+                locatedIndex = index;
+                Item found = node.getItem(index);
+                if (found.element() == TOMBSTONE) {
+                    //a live duplicate wins over the tombstone
+                    Item live = liveDuplicate(key);
+                    return (live != null) ? live : found;
+                }
+                if (lookupCache != null) {
+                    lookupCache.put(found);
+                }
+                return found;
+            }
+            locatedNode = node;
+            locatedIndex = -index - 1;
+            node = node.getChild(locatedIndex);
+        }
+        return null;
+    }
 
-        Integer myInt11 = new Integer(19);
-        myTree.insertElement(myInt11, myInt11);
+    /**
+     * Inserts a new entry where the last locate of key ended, which is the
+     * leaf index insertElement would pick for it
+     */
+    private void insertAtLocation(Object key, Object element) {
+        TFNode leaf = locatedNode;
+        if (leaf == null) {
+            leaf = newNode();
+            setRoot(leaf);
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
+            locatedIndex = 0;
+        }
+        leaf.insertItem(locatedIndex, new Item(key, element));
+        adjustCounts(leaf, 1);
+        size++;
+        modCount++;
+        if (leaf.getNumItems() > maxItems) {
+            fixOverflow(leaf);
+        }
+    }
 
-        Integer myInt12 = new Integer(23);
-        myTree.insertElement(myInt12, myInt12);
+    /**
+     * Turns lazy deletion on or off.  With lazy deletion on, removeElement
+     * finds the entry in one descent and marks its Item as a tombstone,
+     * without restructuring anything, so a remove never triggers the
+     * fusions that can run all the way up to the root.  Lookups, cursors,
+     * streams and the floor/ceiling family skip tombstones, and
+     * insertElement, insertAll, put, putIfAbsent, compute and merge bring
+     * a tombstone back to life in place.  compact takes tombstones out
+     * physically, oldest first; once tombstones pass a quarter of the
+     * entries in the tree, each lazy remove also compacts a couple of them,
+     * so the space they take stays bounded.  Lazy deletion cannot be
+     * combined with subtree counts.  Turning it off compacts every
+     * tombstone.
+     * @param enabled true to remove lazily
+     * @exception TwoFourTreeException if subtree counts are on
+     */
+    public void setLazyDeletion(boolean enabled) {
+        if (enabled && countSubtrees) {
+            throw new TwoFourTreeException("Lazy deletion cannot be used with subtree counts");
+        }
+        if (enabled && tombstones == null) {
+            tombstones = new ArrayDeque<Item>();
+        }
+        else if (!enabled && tombstones != null) {
+            compact();
+            tombstones = null;
+        }
+    }
 
-        Integer myInt13 = new Integer(24);
-        myTree.insertElement(myInt13, myInt13);
+    /**
+     * Returns whether removes are lazy
+     * @return true if lazy deletion is on
+     */
+    public boolean isLazyDeletion() {
+        return tombstones != null;
+    }
 
-        Integer myInt14 = new Integer(88);
-        myTree.insertElement(myInt14, myInt14);
+    /**
+     * Returns the number of tombstones waiting for compaction
+     * @return tombstones still in the tree
+     */
+    public int tombstoneCount() {
+        return tombstoneCount;
+    }
 
-        Integer myInt15 = new Integer(1);
-        myTree.insertElement(myInt15, myInt15);
+    /**
+     * Physically removes up to maxRemovals tombstones, oldest first, each
+     * with a normal bottom-up remove.  Calling it with a small bound
+     * whenever there is time to spare spreads the restructuring out.
+     * @param maxRemovals most tombstones to remove
+     * @return number of tombstones removed
+     */
+    public int compact(int maxRemovals) {
+        int removed = 0;
+        while (removed < maxRemovals && tombstones != null && !tombstones.isEmpty()) {
+            Item item = tombstones.poll();
+            //skip Items brought back to life, and Items already taken out
+            if (item.element() != TOMBSTONE || !locateItem(root(), item.key(), item)) {
+                continue;
+            }
+            removeAt(locatedNode, locatedIndex);
+            //clear it so that a second place in the queue is passed over
+            item.setElement(null);
+            tombstoneCount--;
+            removed++;
+        }
+        return removed;
+    }
 
-        Integer myInt16 = new Integer(97);
-        myTree.insertElement(myInt16, myInt16);
+    /**
+     * Physically removes every tombstone
+     * @return number of tombstones removed
+     */
+    public int compact() {
+        return compact(Integer.MAX_VALUE);
+    }
 
-        Integer myInt17 = new Integer(94);
-        myTree.insertElement(myInt17, myInt17);
+    /**
+     * Marks a live Item as removed
+     * @return the element it held
+     */
+    private Object markRemoved(Item item) {
+        Object element = item.element();
+        item.setElement(TOMBSTONE);
+        tombstones.add(item);
+        tombstoneCount++;
+        size--;
+        modCount++;
+        if (lookupCache != null) {
+            lookupCache.invalidate(item.key());
+        }
+        if (4L * tombstoneCount > (long) size + tombstoneCount) {
+            compact(COMPACTION_SLICE);
+        }
+        if (tombstones.size() > 2 * tombstoneCount + FREE_LIST_CAPACITY) {
+            purgeQueue();
+        }
+        return element;
+    }
 
-        Integer myInt18 = new Integer(35);
-        myTree.insertElement(myInt18, myInt18);
+    /**
+     * Drops revived Items and repeats from the queue, which removing and
+     * putting back the same keys over and over would otherwise grow
+     * without bound.  The queue then holds each tombstone once, so the
+     * pass is paid for by the removes that filled it.
+     */
+    private void purgeQueue() {
+        Set<Item> seen = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+        tombstones.removeIf(item -> item.element() != TOMBSTONE || !seen.add(item));
+    }
 
-        Integer myInt19 = new Integer(51);
-        myTree.insertElement(myInt19, myInt19);
+    // brings a tombstone back to life with a new element; it stays queued
+    private void revive(Item item, Object element) {
+        item.setElement(element);
+        tombstoneCount--;
+        size++;
+        modCount++;
+    }
 
-        myTree.printAllElements();
-        System.out.println("done");
+    boolean isTombstone(Item item) {
+        return item.element() == TOMBSTONE;
+    }
+
+    /**
+     * Finds a live entry with key among its duplicates, for when the search
+     * landed on a tombstone
+     * @return the first live Item with key; null if there is none
+     */
+    private Item liveDuplicate(Object key) {
+        TwoFourTreeCursor cursor = new TwoFourTreeCursor(this, key, null);
+        if (cursor.next() && treeComp.compare(cursor.key(), key) == 0) {
+            return cursor.item();
+        }
+        return null;
+    }
+
+    /**
+     * Finds a particular Item among the entries with its key, which may be
+     * spread over several nodes, leaving locatedNode and locatedIndex on it
+     * @param node root of the subtree to search
+     * @param key of the Item
+     * @param target Item to find, compared by identity
+     * @return whether the Item was found
+     */
+    private boolean locateItem(TFNode node, Object key, Item target) {
+        if (node == null) {
+            return false;
+        }
+        //equal keys can sit in items lo to hi - 1 and in children lo to hi
+        int lo = findFirstGreaterThanOrEqualTo(node, key);
+        int hi = findFirstGreaterThan(node, key);
+        for (int i = lo; i <= hi; i++) {
+            if (locateItem(node.getChild(i), key, target)) {
+                return true;
+            }
+            if (i < hi && node.getItem(i) == target) {
+                locatedNode = node;
+                locatedIndex = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Turns top-down mode on or off.  In top-down mode insertElement splits
+     * every full node it meets on the way down, and removeElement tops up
+     * every minimal node it meets on the way down, so each makes a single
+     * pass from the root to a leaf and never climbs back up.  Splitting a
+     * full node into two legal halves needs an odd number of items, so the
+     * mode is only available for odd orders.
+     * @param enabled whether to restructure on the way down
+     * @exception TwoFourTreeException if enabled and the order is even
+     */
+    public void setTopDown(boolean enabled) {
+        if (enabled && maxItems % 2 == 0) {
+            throw new TwoFourTreeException("Top-down mode needs an odd order, not "
+                    + maxItems);
+        }
+        topDown = enabled;
+    }
+
+    /**
+     * Returns whether inserts and removes restructure on the way down
+     * @return true in top-down mode
+     */
+    public boolean isTopDown() {
+        return topDown;
+    }
+
+    /**
+     * Inserts in a single pass: any full node on the path is split before
+     * the walk moves into it, so the leaf always has room and no split ever
+     * has to travel back up
+     * @param key of object to be inserted
+     * @param element to be inserted
+     */
+    private void topDownInsert(Object key, Object element) {
+        TFNode node = root();
+        if (node == null) {
+            node = newNode();
+            setRoot(node);
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
+        }
+        else if (node.getNumItems() == maxItems) {
+            //a full root is split under a new root
+            TFNode newRoot = newNode();
+            newRoot.setChild(0, node);
+            node.setParent(newRoot);
+            setRoot(newRoot);
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
+            splitChild(newRoot, 0);
+            recount(newRoot);
+            node = newRoot;
+        }
+
+        while (true) {
+            if (countSubtrees) {
+                node.setSubtreeSize(node.getSubtreeSize() + 1);
+            }
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            if (node.getChild(0) == null) {
+                node.insertItem(index, new Item(key, element));
+                break;
+            }
+            if (node.getChild(index).getNumItems() == maxItems) {
+                splitChild(node, index);
+                //duplicates stay left of the item that moved up
+                if (treeComp.compare(key, node.getItem(index).key()) > 0) {
+                    index++;
+                }
+            }
+            node = node.getChild(index);
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Splits a full child around its middle item, which moves up into the
+     * parent; the parent must have room for it
+     * @param parent of the full child
+     * @param index of the full child among the parent's children
+     */
+    private void splitChild(TFNode parent, int index) {
+        TFNode child = parent.getChild(index);
+        TFNode sibling = newNode();
+        if (metrics != null) {
+            metrics.countSplits(1);
+        }
+        Item midItem = child.splitAt(child.getNumItems() / 2, sibling);
+        parent.insertItem(index, midItem);
+        parent.setChild(index + 1, sibling);
+        sibling.setParent(parent);
+        recount(child);
+        recount(sibling);
+    }
+
+    /**
+     * Removes in a single pass: any minimal node on the path is topped up
+     * by a transfer or a fusion before the walk moves into it, so the leaf
+     * can always spare an item and no underflow ever has to travel back
+     * up.  A key found in an internal node is replaced by its in-order
+     * predecessor, taken from the leaf the same walk ends in.
+     * @param key of data to be removed
+     * @return object corresponding to key
+     * @exception ElementNotFoundException if the key is not in dictionary
+     */
+    private Object topDownRemove(Object key) throws ElementNotFoundException {
+        TFNode node = root();
+        if (node == null) {
+            throw new ElementNotFoundException("Element specified was not found");
+        }
+        //nodes walked through, so their counts can drop once the key is found
+        TFNode[] path = countSubtrees ? new TFNode[height()] : null;
+        int depth = 0;
+        TFNode foundNode = null;
+        int foundIndex = 0;
+
+        while (node.getChild(0) != null) {
+            int index;
+            Item match = null;
+            if (foundNode != null) {
+                //below the key, follow the right spine to its predecessor
+                index = node.getNumItems();
+            }
+            else {
+                int result = searchNode(node, key);
+                if (result >= 0) {
+                    index = result;
+                    match = node.getItem(index);
+                }
+                else {
+                    index = -result - 1;
+                }
+            }
+            if (node.getChild(index).getNumItems() <= minItems) {
+                modCount++;
+                index = fillChild(node, index);
+                if (node.getNumItems() == 0) {
+                    //the root gave its last item to a fusion
+                    TFNode child = node.getChild(0);
+                    shrinkRoot(node);
+                    node = child;
+                    continue;
+                }
+                //a transfer from the right or a fusion takes the match down
+                if (match != null && (index >= node.getNumItems()
+                        || node.getItem(index) != match)) {
+                    match = null;
+                }
+            }
+            if (match != null) {
+                foundNode = node;
+                foundIndex = index;
+            }
+            if (path != null) {
+                path[depth++] = node;
+            }
+            node = node.getChild(index);
+        }
+
+        Item removed;
+        if (foundNode != null) {
+            Item predecessor = node.removeItem(node.getNumItems() - 1);
+            removed = foundNode.replaceItem(foundIndex, predecessor);
+        }
+        else {
+            int index = searchNode(node, key);
+            if (index < 0) {
+                throw new ElementNotFoundException("Element specified was not found");
+            }
+            removed = node.removeItem(index);
+        }
+        if (lookupCache != null) {
+            lookupCache.invalidate(removed.key());
+        }
+        if (path != null) {
+            path[depth++] = node;
+            for (int i = 0; i < depth; i++) {
+                path[i].setSubtreeSize(path[i].getSubtreeSize() - 1);
+            }
+        }
+        size--;
+        modCount++;
+        if (node.getNumItems() == 0) {
+            shrinkRoot(node);
+        }
+        return removed.element();
+    }
+
+    /**
+     * Tops up a child holding only the minimum number of items, by a
+     * transfer from a sibling that can spare an item or else by a fusion
+     * with a sibling
+     * @param parent of the minimal child
+     * @param index of the child among the parent's children
+     * @return index of the child that now covers the same keys
+     */
+    private int fillChild(TFNode parent, int index) {
+        TFNode left = (index > 0) ? parent.getChild(index - 1) : null;
+        TFNode right = (index < parent.getNumItems()) ? parent.getChild(index + 1) : null;
+        if (left != null && left.getNumItems() > minItems) {
+            transferFromLeft(parent, index, 1);
+            return index;
+        }
+        if (right != null && right.getNumItems() > minItems) {
+            transferFromRight(parent, index, 1);
+            return index;
+        }
+        if (left != null) {
+            fuseChildren(parent, index - 1);
+            return index - 1;
+        }
+        fuseChildren(parent, index);
+        return index;
+    }
+
+    /**
+     * Fills an empty tree from keys that are already in ascending order.
+     * Nodes are built level by level from the leaves up, so the load takes
+     * linear time and compares each key only with its predecessor, to
+     * verify the order.
+     * @param keys in ascending order
+     * @param elements matching the keys
+     * @exception TwoFourTreeException if the tree is not empty or the keys
+     * are out of order
+     */
+    public void bulkLoad(Object[] keys, Object[] elements) {
+        bulkLoad(keys, elements, 1.0);
+    }
+
+    /**
+     * Fills an empty tree from sorted keys, leaving room in every node
+     * @param keys in ascending order
+     * @param elements matching the keys
+     * @param fillFactor fraction of each node to fill, in (0, 1]; nodes are
+     * never filled below the minimum a node may hold
+     */
+    public void bulkLoad(Object[] keys, Object[] elements, double fillFactor) {
+        if (keys.length != elements.length) {
+            throw new TwoFourTreeException("bulkLoad needs one element per key");
+        }
+        Item[] items = new Item[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            items[i] = new Item(keys[i], elements[i]);
+        }
+        buildFromSorted(items, fillFactor);
+    }
+
+    /**
+     * Fills an empty tree from Items delivered in ascending key order
+     * @param items in ascending key order
+     */
+    public void bulkLoad(Iterator<Item> items) {
+        bulkLoad(items, 1.0);
+    }
+
+    /**
+     * Fills an empty tree from sorted Items, leaving room in every node
+     * @param items in ascending key order
+     * @param fillFactor fraction of each node to fill, in (0, 1]
+     */
+    public void bulkLoad(Iterator<Item> items, double fillFactor) {
+        ArrayList<Item> list = new ArrayList<Item>();
+        while (items.hasNext()) {
+            list.add(items.next());
+        }
+        buildFromSorted(list.toArray(new Item[list.size()]), fillFactor);
+    }
+
+    private void buildFromSorted(Item[] items, double fillFactor) {
+        compact();
+        if (root() != null) {
+            throw new TwoFourTreeException("bulkLoad requires an empty tree");
+        }
+        if (!(fillFactor > 0.0 && fillFactor <= 1.0)) {
+            throw new TwoFourTreeException("fillFactor must be in (0, 1]");
+        }
+        for (int i = 1; i < items.length; i++) {
+            if (treeComp.compare(items[i - 1].key(), items[i].key()) > 0) {
+                throw new TwoFourTreeException("bulkLoad input is not sorted");
+            }
+        }
+        if (items.length == 0) {
+            return;
+        }
+        int target = (int) Math.ceil(fillFactor * maxItems);
+        target = Math.max(minItems, Math.min(maxItems, target));
+
+        //each pass turns one level into nodes and hands the items that
+        //separate those nodes up to the next level
+        Item[] levelItems = items;
+        TFNode[] levelBelow = null;
+        while (true) {
+            int count = levelItems.length;
+            int nodes = nodesForLevel(count, target);
+            TFNode[] level = new TFNode[nodes];
+            Item[] separators = new Item[nodes - 1];
+            int perNode = (count - nodes + 1) / nodes;
+            int extra = (count - nodes + 1) % nodes;
+            int next = 0;
+            int nextChild = 0;
+            for (int j = 0; j < nodes; j++) {
+                TFNode node = newNode();
+                int numItems = perNode + ((j < extra) ? 1 : 0);
+                for (int i = 0; i < numItems; i++) {
+                    node.addItem(i, levelItems[next++]);
+                }
+                if (levelBelow != null) {
+                    for (int i = 0; i <= numItems; i++) {
+                        adoptChild(node, i, levelBelow[nextChild++]);
+                    }
+                }
+                recount(node);
+                level[j] = node;
+                if (j < nodes - 1) {
+                    separators[j] = levelItems[next++];
+                }
+            }
+            if (nodes == 1) {
+                setRoot(level[0]);
+                break;
+            }
+            levelItems = separators;
+            levelBelow = level;
+        }
+        size = items.length;
+        modCount++;
+    }
+
+    /**
+     * Decides how many nodes a level of count items is packed into, aiming
+     * for target items per node while keeping every node between the
+     * minimum and maximum fill
+     */
+    private int nodesForLevel(int count, int target) {
+        if (count <= maxItems) {
+            return 1;
+        }
+        int nodes = (count + target + 1) / (target + 1);
+        while (nodes > 1 && (count - nodes + 1) / nodes < minItems) {
+            nodes--;
+        }
+        return nodes;
+    }
+
+    /**
+     * Inserts a batch of entries whose keys are in ascending order.  The
+     * batch is applied one leaf at a time: all keys that belong in the same
+     * leaf are merged into it together, the leaf is split as often as
+     * needed in one step, and the next leaf is found by climbing only as far
+     * up from the previous one as the next key requires.  With lazy
+     * deletion on, a key whose tombstone is met on the way brings it back
+     * to life in place.
+     * @param keys in ascending order
+     * @param elements matching the keys
+     * @exception TwoFourTreeException if the keys are out of order
+     */
+    public void insertAll(Object[] keys, Object[] elements) {
+        if (keys.length != elements.length) {
+            throw new TwoFourTreeException("insertAll needs one element per key");
+        }
+        checkSorted(keys);
+        if (root() == null) {
+            bulkLoad(keys, elements);
+            return;
+        }
+        TFNode leaf = null;
+        int next = 0;
+        while (next < keys.length) {
+            TFNode start = (leaf == null) ? root() : climb(leaf, keys[next]);
+            Item upperItem = null;
+            TFNode node = start;
+            while (node.getChild(0) != null) {
+                int index = findFirstGreaterThanOrEqualTo(node, keys[next]);
+                if (index < node.getNumItems()) {
+                    upperItem = node.getItem(index);
+                }
+                node = node.getChild(index);
+            }
+            leaf = node;
+            int end = next + 1;
+            while (end < keys.length && (upperItem == null
+                    || treeComp.compare(keys[end], upperItem.key()) <= 0)) {
+                end++;
+            }
+
+            //merge the leaf's items with this part of the batch, reviving
+            //a tombstone of a key rather than adding a duplicate beside it
+            int numItems = leaf.getNumItems();
+            Item[] merged = new Item[numItems + end - next];
+            int fromLeaf = 0;
+            int count = 0;
+            int added = 0;
+            for (int i = next; i < end; i++) {
+                while (fromLeaf < numItems && treeComp.compare(
+                        leaf.getItem(fromLeaf).key(), keys[i]) < 0) {
+                    merged[count++] = leaf.getItem(fromLeaf++);
+                }
+                Item tombstone = null;
+                if (tombstoneCount > 0) {
+                    Item candidate = (fromLeaf < numItems) ? leaf.getItem(fromLeaf) : upperItem;
+                    if (candidate != null && candidate.element() == TOMBSTONE
+                            && treeComp.compare(candidate.key(), keys[i]) == 0) {
+                        tombstone = candidate;
+                    }
+                }
+                if (tombstone != null) {
+                    revive(tombstone, elements[i]);
+                }
+                else {
+                    merged[count++] = new Item(keys[i], elements[i]);
+                    added++;
+                }
+            }
+            while (fromLeaf < numItems) {
+                merged[count++] = leaf.getItem(fromLeaf++);
+            }
+            if (added > 0) {
+                leaf = distribute(leaf, merged, null, count);
+                recountUpward(leaf.getParent());
+                size += added;
+            }
+            next = end;
+        }
+        modCount++;
+    }
+
+    /**
+     * Removes a batch of keys given in ascending order.  Keys that share a
+     * leaf are removed from it together and the leaf is rebalanced once.
+     * Keys found in interior nodes are removed one at a time, and keys that
+     * are not present are skipped.  With lazy deletion on, each key is
+     * only marked removed.
+     * @param keys in ascending order
+     * @return number of entries removed
+     * @exception TwoFourTreeException if the keys are out of order
+     */
+    public int removeAll(Object[] keys) {
+        checkSorted(keys);
+        int removed = 0;
+        if (tombstones != null) {
+            for (Object key : keys) {
+                Item found = searchItem(key);
+                if (found != null) {
+                    markRemoved(found);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+        TFNode leaf = null;
+        int next = 0;
+        while (next < keys.length && root() != null) {
+            TFNode node = (leaf == null) ? root() : climb(leaf, keys[next]);
+            Object upperBound = null;
+            int index = -1;
+            while (node != null) {
+                index = searchNode(node, keys[next]);
+                if (index >= 0 || node.getChild(0) == null) {
+                    break;
+                }
+                index = -index - 1;
+                if (index < node.getNumItems()) {
+                    upperBound = node.getItem(index).key();
+                }
+                node = node.getChild(index);
+            }
+            if (index >= 0 && node.getChild(0) != null) {
+                removeElement(keys[next++]);
+                removed++;
+                leaf = null;
+                continue;
+            }
+            leaf = node;
+
+            //keys equal to the upper bound live in an ancestor, not the leaf
+            int end = next + 1;
+            while (end < keys.length && (upperBound == null
+                    || treeComp.compare(keys[end], upperBound) < 0)) {
+                end++;
+            }
+            int numItems = leaf.getNumItems();
+            Item[] kept = new Item[numItems];
+            int count = 0;
+            int fromLeaf = 0;
+            for (int i = next; i < end; i++) {
+                int result = -1;
+                while (fromLeaf < numItems && (result = treeComp.compare(
+                        leaf.getItem(fromLeaf).key(), keys[i])) < 0) {
+                    kept[count++] = leaf.getItem(fromLeaf++);
+                }
+                if (fromLeaf < numItems && result == 0) {
+                    if (lookupCache != null) {
+                        lookupCache.invalidate(leaf.getItem(fromLeaf).key());
+                    }
+                    fromLeaf++;
+                }
+            }
+            while (fromLeaf < numItems) {
+                kept[count++] = leaf.getItem(fromLeaf++);
+            }
+            removed += numItems - count;
+            size -= numItems - count;
+            next = end;
+            if (count < numItems) {
+                for (int i = numItems - 1; i >= 0; i--) {
+                    leaf.deleteItem(i);
+                }
+                for (int i = 0; i < count; i++) {
+                    leaf.addItem(i, kept[i]);
+                }
+                recountUpward(leaf);
+                if (count < minItems) {
+                    fixUnderflow(leaf);
+                    leaf = null;
+                }
+            }
+        }
+        modCount++;
+        return removed;
+    }
+
+    private void checkSorted(Object[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (treeComp.compare(keys[i - 1], keys[i]) > 0) {
+                throw new TwoFourTreeException("Batch keys are not sorted");
+            }
+        }
+    }
+
+    /**
+     * Climbs from a node toward the root until reaching an ancestor whose
+     * subtree must hold key, given that key is not less than anything
+     * already visited under node
+     * @return the lowest such ancestor, or the root
+     */
+    private TFNode climb(TFNode node, Object key) {
+        TFNode current = node;
+        while (current.getParent() != null) {
+            current = current.getParent();
+            Item last = current.getItem(current.getNumItems() - 1);
+            if (treeComp.compare(key, last.key()) <= 0) {
+                return current;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Rebuilds a node from count items (and count + 1 children, for an
+     * interior node).  If they do not fit, the node is cut into as many
+     * nodes as needed and the items between them are handed to the parent
+     * in one step, which may in turn be cut the same way.
+     * @return the rightmost of the nodes built
+     */
+    private TFNode distribute(TFNode node, Item[] items, TFNode[] children, int count) {
+        int pieces = (count <= maxItems) ? 1 : (count + maxItems + 1) / (maxItems + 1);
+        int perPiece = (count - pieces + 1) / pieces;
+        int extra = (count - pieces + 1) % pieces;
+        TFNode[] built = new TFNode[pieces];
+        Item[] separators = new Item[pieces - 1];
+        int next = 0;
+        int nextChild = 0;
+        for (int p = 0; p < pieces; p++) {
+            TFNode piece = (p == 0) ? node : newNode();
+            if (p == 0) {
+                for (int i = piece.getNumItems() - 1; i >= 0; i--) {
+                    piece.deleteItem(i);
+                }
+                for (int i = 0; i <= maxItems + 1; i++) {
+                    piece.setChild(i, null);
+                }
+            }
+            int numItems = perPiece + ((p < extra) ? 1 : 0);
+            for (int i = 0; i < numItems; i++) {
+                piece.addItem(i, items[next++]);
+            }
+            if (children != null) {
+                for (int i = 0; i <= numItems; i++) {
+                    adoptChild(piece, i, children[nextChild++]);
+                }
+            }
+            recount(piece);
+            built[p] = piece;
+            if (p < pieces - 1) {
+                separators[p] = items[next++];
+            }
+        }
+        if (pieces == 1) {
+            return node;
+        }
+        if (metrics != null) {
+            metrics.countSplits(pieces - 1);
+        }
+
+        TFNode parent = node.getParent();
+        if (parent == null) {
+            parent = newNode();
+            setRoot(parent);
+            if (metrics != null) {
+                metrics.countRootGrowth();
+            }
+            distribute(parent, separators, built, pieces - 1);
+            return built[pieces - 1];
+        }
+        int index = whatChildIsThis(parent, node);
+        int parentItems = parent.getNumItems();
+        Item[] newItems = new Item[parentItems + pieces - 1];
+        TFNode[] newChildren = new TFNode[parentItems + pieces + 1];
+        int itemCount = 0;
+        int childCount = 0;
+        for (int i = 0; i < index; i++) {
+            newItems[itemCount++] = parent.getItem(i);
+            newChildren[childCount++] = parent.getChild(i);
+        }
+        for (int p = 0; p < pieces; p++) {
+            newChildren[childCount++] = built[p];
+            if (p < pieces - 1) {
+                newItems[itemCount++] = separators[p];
+            }
+        }
+        for (int i = index; i < parentItems; i++) {
+            newItems[itemCount++] = parent.getItem(i);
+            newChildren[childCount++] = parent.getChild(i + 1);
+        }
+        distribute(parent, newItems, newChildren, itemCount);
+        return built[pieces - 1];
+    }
+
+    /**
+     * Splits the tree around a key, in time proportional to its height.
+     * The search path for the key is cut in two, and the pieces on each
+     * side are joined back together from the bottom up; since every leaf
+     * is at the same depth, each join only walks down a spine as far as
+     * the height difference between its pieces, and the costs add up to
+     * one pass over the height.  No item is moved between nodes except
+     * along the cut.  This tree keeps the keys less than key and a new
+     * tree, of the same order and comparator, takes the rest.  Without
+     * subtree counts the size of each part is not known after the split,
+     * and the first call to size() counts it; likewise, with metrics on,
+     * the first read of the node count counts the nodes.
+     * @param key to split around
+     * @return this tree, holding the keys less than key, and a new tree
+     * holding the keys greater than or equal to key
+     */
+    public TwoFourTree[] split(Object key) {
+        compact();
+        TwoFourTree right = new TwoFourTree(baseComparator(), maxItems);
+        right.countSubtrees = countSubtrees;
+        right.setLazyDeletion(isLazyDeletion());
+        TFNode[] pieces = new TFNode[2];
+        int[] heights = new int[2];
+        if (root() != null) {
+            TFNode oldRoot = root();
+            splitNode(oldRoot, height(), key, pieces, heights);
+        }
+        setRoot(pieces[0]);
+        right.setRoot(pieces[1]);
+        if (countSubtrees) {
+            size = subtreeSize(pieces[0]);
+            right.size = subtreeSize(pieces[1]);
+        }
+        else {
+            sizeStale = true;
+            right.sizeStale = true;
+        }
+        if (metrics != null) {
+            metrics.markNodesStale();
+        }
+        if (lookupCache != null) {
+            lookupCache.clear();
+        }
+        modCount++;
+        return new TwoFourTree[] {this, right};
+    }
+
+    /**
+     * Joins two trees whose keys do not overlap, in time proportional to
+     * their heights.  The greatest item of left becomes the separator, and
+     * the shorter tree is hung from the spine of the taller one at the
+     * level where their leaves line up.  The trees must have the same order
+     * and order their keys the same way.  left receives every entry, and
+     * right is left empty.
+     * @param left tree whose keys are all no greater than right's
+     * @param right tree whose keys are all no less than left's
+     * @return left, now holding the entries of both
+     * @exception TwoFourTreeException if the trees are the same, differ in
+     * order, or have overlapping keys
+     */
+    public static TwoFourTree join(TwoFourTree left, TwoFourTree right) {
+        if (left == right) {
+            throw new TwoFourTreeException("Cannot join a tree to itself");
+        }
+        if (left.maxItems != right.maxItems) {
+            throw new TwoFourTreeException("Cannot join trees of order "
+                    + left.maxItems + " and " + right.maxItems);
+        }
+        left.compact();
+        right.compact();
+        if (right.root() == null) {
+            return left;
+        }
+        if (left.root() != null && left.treeComp.compare(left.lastItem().key(),
+                right.firstItem().key()) > 0) {
+            throw new TwoFourTreeException("Keys of the joined trees overlap");
+        }
+        if (left.countSubtrees && !right.countSubtrees) {
+            right.countFromNode(right.root());
+        }
+        //an unknown size stays unknown rather than being counted here
+        boolean stale = left.sizeStale || right.sizeStale;
+        int total = left.size + right.size;
+        //node counts are left for the metrics to redo when next read
+        if (left.metrics != null) {
+            left.metrics.markNodesStale();
+        }
+        if (right.metrics != null) {
+            right.metrics.markNodesStale();
+        }
+
+        if (left.root() == null) {
+            left.setRoot(right.root());
+        }
+        else {
+            Item separator = left.removeLast();
+            left.joinNodes(left.root(), left.height(), separator, right.root(),
+                    right.height());
+        }
+        left.size = total;
+        left.sizeStale = stale;
+        left.modCount++;
+
+        right.setRoot(null);
+        right.size = 0;
+        right.sizeStale = false;
+        right.modCount++;
+        if (right.lookupCache != null) {
+            right.lookupCache.clear();
+        }
+        return left;
+    }
+
+    /**
+     * Splits the subtree under node around key into the subtree of keys
+     * less than key and the subtree of the rest.  node is taken apart; its
+     * nodes are reused in the two results.
+     * @param node root of the subtree, detached from its parent
+     * @param height of the subtree
+     * @param key to split around
+     * @param pieces receives the roots of the two results, null if empty
+     * @param heights receives the heights of the two results
+     */
+    private void splitNode(TFNode node, int height, Object key, TFNode[] pieces,
+            int[] heights) {
+        node.setParent(null);
+        int numItems = node.getNumItems();
+        int index = findFirstGreaterThanOrEqualTo(node, key);
+        if (node.getChild(0) == null) {
+            if (index == 0 || index == numItems) {
+                pieces[0] = (index == 0) ? null : node;
+                pieces[1] = (index == 0) ? node : null;
+            }
+            else {
+                TFNode sibling = newNode();
+                Item first = node.splitAt(index, sibling);
+                sibling.insertItem(0, first);
+                recount(node);
+                recount(sibling);
+                pieces[0] = node;
+                pieces[1] = sibling;
+            }
+            heights[0] = (pieces[0] == null) ? 0 : 1;
+            heights[1] = (pieces[1] == null) ? 0 : 1;
+            return;
+        }
+
+        //split the child the key leads to first
+        TFNode child = node.getChild(index);
+        splitNode(child, height - 1, key, pieces, heights);
+        TFNode childLeft = pieces[0];
+        int childLeftHeight = heights[0];
+        TFNode childRight = pieces[1];
+        int childRightHeight = heights[1];
+
+        //items right of the cut, with their children, form the right piece
+        Item rightSeparator = null;
+        TFNode rightPiece = null;
+        int rightPieceHeight = 0;
+        if (index < numItems) {
+            TFNode sibling = newNode();
+            rightSeparator = node.splitAt(index, sibling);
+            rightPieceHeight = (sibling.getNumItems() > 0) ? height : height - 1;
+            rightPiece = detachPiece(sibling);
+        }
+        node.setChild(index, null);
+
+        //what is left of the node, less its last item, is the left piece
+        Item leftSeparator = null;
+        TFNode leftPiece = null;
+        int leftPieceHeight = 0;
+        if (index > 0) {
+            leftSeparator = node.deleteItem(index - 1);
+            leftPieceHeight = (node.getNumItems() > 0) ? height : height - 1;
+            leftPiece = detachPiece(node);
+        }
+        else {
+            discardNode(node);
+        }
+
+        if (leftSeparator != null) {
+            heights[0] = joinNodes(leftPiece, leftPieceHeight, leftSeparator,
+                    childLeft, childLeftHeight);
+            pieces[0] = root();
+        }
+        else {
+            pieces[0] = childLeft;
+            heights[0] = childLeftHeight;
+        }
+        if (rightSeparator != null) {
+            heights[1] = joinNodes(childRight, childRightHeight, rightSeparator,
+                    rightPiece, rightPieceHeight);
+            pieces[1] = root();
+        }
+        else {
+            pieces[1] = childRight;
+            heights[1] = childRightHeight;
+        }
+    }
+
+    /**
+     * Makes a node left over from a split into the root of a piece: a node
+     * with no items gives way to its only child
+     * @return root of the piece
+     */
+    private TFNode detachPiece(TFNode node) {
+        if (node.getNumItems() > 0) {
+            recount(node);
+            return node;
+        }
+        TFNode child = node.getChild(0);
+        child.setParent(null);
+        discardNode(node);
+        return child;
+    }
+
+    /**
+     * Joins two subtrees and a separator between them into one tree.  The
+     * shorter subtree is hung from the spine of the taller one, next to the
+     * separator, at the level where their leaves line up; then the hung
+     * root, which may hold too few items, is topped up from its new
+     * sibling, and the node it was hung from is split if it overflowed.
+     * Either subtree may be empty.
+     * @param left root of the subtree of smaller keys, or null
+     * @param leftHeight its height
+     * @param separator item between the two
+     * @param right root of the subtree of greater keys, or null
+     * @param rightHeight its height
+     * @return height of the joined tree, whose root becomes this tree's
+     * root
+     */
+    private int joinNodes(TFNode left, int leftHeight, Item separator, TFNode right,
+            int rightHeight) {
+        if (left == null && right == null) {
+            TFNode leaf = newNode();
+            leaf.addItem(0, separator);
+            recount(leaf);
+            setRoot(leaf);
+            return 1;
+        }
+        if (left == null || right == null) {
+            //the separator becomes the first or last entry of the other
+            TFNode other = (left == null) ? right : left;
+            setRoot(other);
+            TFNode node = other;
+            while (node.getChild(0) != null) {
+                node = node.getChild((left == null) ? 0 : node.getNumItems());
+            }
+            node.insertItem((left == null) ? 0 : node.getNumItems(), separator);
+            adjustCounts(node, 1);
+            if (node.getNumItems() > maxItems) {
+                fixOverflow(node);
+            }
+            int height = (left == null) ? rightHeight : leftHeight;
+            return (root() == other) ? height : height + 1;
+        }
+        if (leftHeight == rightHeight) {
+            TFNode top = newNode();
+            top.addItem(0, separator);
+            adoptChild(top, 0, left);
+            adoptChild(top, 1, right);
+            recount(top);
+            setRoot(top);
+            if (left.getNumItems() < minItems) {
+                fixUnderflow(left);
+            }
+            if (root() == top && right.getNumItems() < minItems) {
+                fixUnderflow(right);
+            }
+            //a fusion of the two roots leaves the height as it was
+            return (root() == top) ? leftHeight + 1 : leftHeight;
+        }
+
+        TFNode taller;
+        TFNode hung;
+        TFNode parent;
+        if (leftHeight > rightHeight) {
+            taller = left;
+            parent = left;
+            for (int level = leftHeight; level > rightHeight + 1; level--) {
+                parent = parent.getChild(parent.getNumItems());
+            }
+            int numItems = parent.getNumItems();
+            parent.addItem(numItems, separator);
+            adoptChild(parent, numItems + 1, right);
+            hung = right;
+        }
+        else {
+            taller = right;
+            parent = right;
+            for (int level = rightHeight; level > leftHeight + 1; level--) {
+                parent = parent.getChild(0);
+            }
+            parent.insertItem(0, separator);
+            adoptChild(parent, 0, left);
+            hung = left;
+        }
+        setRoot(taller);
+        recountUpward(parent);
+        //the parent gained the separator, so a fusion cannot empty it
+        if (hung.getNumItems() < minItems) {
+            fixUnderflow(hung);
+        }
+        if (parent.getNumItems() > maxItems) {
+            fixOverflow(parent);
+        }
+        int height = Math.max(leftHeight, rightHeight);
+        return (root() == taller) ? height : height + 1;
+    }
+
+    // takes the greatest item out of the tree, restructuring as removes do
+    private Item removeLast() {
+        TFNode node = root();
+        while (node.getChild(0) != null) {
+            node = node.getChild(node.getNumItems());
+        }
+        Item last = node.removeItem(node.getNumItems() - 1);
+        adjustCounts(node, -1);
+        size--;
+        modCount++;
+        if (node.getNumItems() < minItems) {
+            fixUnderflow(node);
+        }
+        return last;
+    }
+
+    private Item firstItem() {
+        TFNode node = root();
+        while (node.getChild(0) != null) {
+            node = node.getChild(0);
+        }
+        return node.getItem(0);
+    }
+
+    private Item lastItem() {
+        TFNode node = root();
+        while (node.getChild(0) != null) {
+            node = node.getChild(node.getNumItems());
+        }
+        return node.getItem(node.getNumItems() - 1);
+    }
+
+    private int countItems(TFNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int total = node.getNumItems();
+        if (node.getChild(0) != null) {
+            for (int i = 0; i <= node.getNumItems(); i++) {
+                total += countItems(node.getChild(i));
+            }
+        }
+        return total;
+    }
+
+    // the comparator the tree was built with, without the metrics wrapper
+    private Comparator baseComparator() {
+        return (metrics != null) ? ((CountingComparator) treeComp).getBase() : treeComp;
+    }
+
+    /**
+     * Turns operation metrics on or off.  Turning them on starts every
+     * counter from zero and routes key comparisons through a
+     * CountingComparator; turning them off drops the counters, so a tree
+     * without metrics pays nothing for them.
+     * @param enabled whether to collect metrics
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled && metrics == null) {
+            metrics = new TwoFourTreeMetrics(this, countNodes(root()));
+            treeComp = new CountingComparator(treeComp, metrics.comparisonCounter());
+        }
+        else if (!enabled && metrics != null) {
+            treeComp = ((CountingComparator) treeComp).getBase();
+            metrics.unregister();
+            metrics = null;
+        }
+    }
+
+    /**
+     * Returns the tree's metrics
+     * @return metrics, or null if they are off
+     */
+    public TwoFourTreeMetrics metrics() {
+        return metrics;
+    }
+
+    // the number of nodes in the tree, walking all of them
+    long countNodes() {
+        return countNodes(root());
+    }
+
+    private long countNodes(TFNode node) {
+        if (node == null) {
+            return 0;
+        }
+        long total = 1;
+        for (int i = 0; i <= node.getNumItems(); i++) {
+            total += countNodes(node.getChild(i));
+        }
+        return total;
+    }
+
+    /**
+     * Puts a lookup cache of the given capacity in front of findElement, or
+     * takes it away.  findElement answers cached keys without walking the
+     * tree, and caches each key it has to walk for, evicting by CLOCK once
+     * the cache is full.  Every removal drops the removed key's entry, so
+     * a cached answer is always an Item still in the tree.  With the cache
+     * on, findElement changes the cache, so lookups must not run
+     * concurrently.
+     * @param capacity most keys to cache; 0 to remove the cache
+     * @exception TwoFourTreeException if capacity is negative
+     */
+    public void setLookupCache(int capacity) {
+        if (capacity < 0) {
+            throw new TwoFourTreeException("Cache capacity must not be negative");
+        }
+        lookupCache = (capacity == 0) ? null : new LookupCache(capacity);
+    }
+
+    /**
+     * Returns the lookup cache, for its hit and miss statistics
+     * @return the cache, or null if there is none
+     */
+    public LookupCache lookupCache() {
+        return lookupCache;
+    }
+
+    /**
+     * Turns node recycling on or off.  With recycling on, nodes that leave
+     * the tree through a fusion or a shrinking root are kept, up to a
+     * fixed number, and handed out again by the next splits, so churn
+     * that alternates removes and inserts allocates no new nodes.
+     * @param enabled whether to recycle nodes
+     */
+    public void setNodeRecycling(boolean enabled) {
+        if (enabled && freeNodes == null) {
+            freeNodes = new TFNode[FREE_LIST_CAPACITY];
+        }
+        else if (!enabled) {
+            freeNodes = null;
+            freeCount = 0;
+        }
+    }
+
+    // every node the tree creates comes from here
+    private TFNode newNode() {
+        if (metrics != null) {
+            metrics.countNodes(1);
+        }
+        if (freeCount > 0) {
+            TFNode node = freeNodes[--freeCount];
+            freeNodes[freeCount] = null;
+            return node;
+        }
+        return new TFNode(maxItems);
+    }
+
+    // called for every node that leaves the tree
+    private void discardNode(TFNode node) {
+        if (metrics != null) {
+            metrics.countNodes(-1);
+        }
+        if (freeNodes != null && freeCount < freeNodes.length) {
+            node.clear();
+            freeNodes[freeCount++] = node;
+        }
+    }
+
+    /**
+     * Turns subtree counts on or off.  With counts on, every node knows how
+     * many entries lie beneath it, which rank, select and countRange need;
+     * every restructuring keeps them up to date.  Turning them on counts the
+     * existing tree once.
+     * @param enabled whether to keep subtree counts
+     * @exception TwoFourTreeException if lazy deletion is on
+     */
+    public void setSubtreeCounts(boolean enabled) {
+        if (enabled && tombstones != null) {
+            throw new TwoFourTreeException("Subtree counts cannot be used with lazy deletion");
+        }
+        if (enabled && !countSubtrees) {
+            countSubtrees = true;
+            countFromNode(root());
+        }
+        countSubtrees = enabled;
+    }
+
+    /**
+     * Returns whether nodes keep subtree counts
+     * @return true if subtree counts are kept
+     */
+    public boolean hasSubtreeCounts() {
+        return countSubtrees;
+    }
+
+    /**
+     * Counts the entries with keys strictly less than key
+     * @param key to be compared
+     * @return number of smaller keys
+     */
+    public int rank(Object key) {
+        requireCounts();
+        int rank = 0;
+        TFNode node = root();
+        while (node != null) {
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            rank += index;
+            for (int i = 0; i < index; i++) {
+                rank += subtreeSize(node.getChild(i));
+            }
+            node = node.getChild(index);
+        }
+        return rank;
+    }
+
+    /**
+     * Finds the entry at a position in key order
+     * @param index position counted from 0
+     * @return Item at that position
+     * @exception TwoFourTreeException if index is out of range
+     */
+    public Item select(int index) {
+        requireCounts();
+        if (index < 0 || index >= size()) {
+            throw new TwoFourTreeException("Index out of range: " + index);
+        }
+        TFNode node = root();
+        while (true) {
+            int numItems = node.getNumItems();
+            int child;
+            for (child = 0; child <= numItems; child++) {
+                int below = subtreeSize(node.getChild(child));
+                if (index < below) {
+                    break;
+                }
+                index -= below;
+                if (child < numItems) {
+                    if (index == 0) {
+                        return node.getItem(child);
+                    }
+                    index--;
+                }
+            }
+            node = node.getChild(child);
+        }
+    }
+
+    /**
+     * Counts the entries with keys from lo up to but not including hi
+     * @param lo smallest key counted
+     * @param hi key to stop before
+     * @return number of entries in the range
+     */
+    public int countRange(Object lo, Object hi) {
+        if (treeComp.compare(lo, hi) >= 0) {
+            return 0;
+        }
+        return rank(hi) - rank(lo);
+    }
+
+    private void requireCounts() {
+        if (!countSubtrees) {
+            throw new TwoFourTreeException("Subtree counts are not enabled");
+        }
+    }
+
+    private int subtreeSize(TFNode node) {
+        return (node == null) ? 0 : node.getSubtreeSize();
+    }
+
+    // recomputes a node's count from its items and its children's counts
+    private void recount(TFNode node) {
+        if (!countSubtrees || node == null) {
+            return;
+        }
+        int total = node.getNumItems();
+        if (node.getChild(0) != null) {
+            for (int i = 0; i <= node.getNumItems(); i++) {
+                total += node.getChild(i).getSubtreeSize();
+            }
+        }
+        node.setSubtreeSize(total);
+    }
+
+    private void recountUpward(TFNode node) {
+        if (!countSubtrees) {
+            return;
+        }
+        for (TFNode current = node; current != null; current = current.getParent()) {
+            recount(current);
+        }
+    }
+
+    // adds delta to the count of node and of each of its ancestors
+    private void adjustCounts(TFNode node, int delta) {
+        if (!countSubtrees) {
+            return;
+        }
+        for (TFNode current = node; current != null; current = current.getParent()) {
+            current.setSubtreeSize(current.getSubtreeSize() + delta);
+        }
+    }
+
+    private int countFromNode(TFNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int total = node.getNumItems();
+        for (int i = 0; i <= node.getNumItems(); i++) {
+            total += countFromNode(node.getChild(i));
+        }
+        node.setSubtreeSize(total);
+        return total;
+    }
+
+    /**
+     * Returns a cursor over every entry of the tree in key order
+     * @return cursor positioned before the first entry
+     */
+    public TwoFourTreeCursor cursor() {
+        return new TwoFourTreeCursor(this, null, null);
+    }
+
+    /**
+     * Returns a cursor over the entries with keys from lo up to but not
+     * including hi, in key order
+     * @param lo smallest key to visit; null for no lower bound
+     * @param hi key to stop before; null for no upper bound
+     * @return cursor positioned before the first entry of the range
+     */
+    public TwoFourTreeCursor cursor(Object lo, Object hi) {
+        return new TwoFourTreeCursor(this, lo, hi);
+    }
+
+    /**
+     * Turns the finger on or off.  With the finger on, the tree remembers
+     * the path to the last leaf it searched or inserted into, and the range
+     * of keys each node on that path covers.  findElement and insertElement
+     * then start from the lowest node on that path whose range holds the
+     * key, climbing only as far as they must, so keys that arrive in order
+     * or close together rarely go back to the root.  Any other change to
+     * the tree retires the finger until the next search rebuilds it.
+     * @param enabled whether to search from the finger
+     */
+    public void setFingerEnabled(boolean enabled) {
+        fingerEnabled = enabled;
+        fingerDepth = 0;
+    }
+
+    /**
+     * Returns whether searches start from the finger
+     * @return true if the finger is on
+     */
+    public boolean isFingerEnabled() {
+        return fingerEnabled;
+    }
+
+    /**
+     * Inserts an entry whose key is not less than the key of the entry a
+     * cursor is on, starting the search from the cursor's position instead
+     * of the root, and leaves the cursor on the new entry.  Inserting a run
+     * of ascending keys through the same cursor takes amortized constant
+     * comparisons per key.  Entries with equal keys keep no particular
+     * order, so the new entry may come before an equal one.
+     * @param hint cursor on the entry to insert after
+     * @param key of object to be inserted
+     * @param element to be inserted
+     * @exception TwoFourTreeException if the cursor belongs to another tree,
+     * is stale or is not on an entry, or if key is less than its key
+     */
+    public void insertAfter(TwoFourTreeCursor hint, Object key, Object element) {
+        if (hint.tree() != this) {
+            throw new TwoFourTreeException("Cursor belongs to another tree");
+        }
+        if (hint.expectedModCount != modCount) {
+            throw new TwoFourTreeException("Tree was modified since the cursor was positioned");
+        }
+        Item after = hint.item();
+        if (treeComp.compare(key, after.key()) < 0) {
+            throw new TwoFourTreeException("Key is less than the cursor's key");
+        }
+
+        int level;
+        if (hint == fingerCursor && fingerModCount == modCount
+                && fingerNodes[fingerDepth - 1].getItem(fingerIndexes[fingerDepth - 1]) == after) {
+            //the finger still ends on this cursor's entry
+            level = fingerDepth - 1;
+        }
+        else {
+            //take over the cursor's path as the finger
+            ensureFinger(hint.depth);
+            fingerNodes[0] = hint.pathNodes[0];
+            fingerLow[0] = null;
+            fingerHigh[0] = null;
+            for (int d = 0; d < hint.depth - 1; d++) {
+                fingerStep(d, hint.pathIndexes[d]);
+            }
+            level = hint.depth - 1;
+            fingerChangedFrom = 0;
+        }
+        while (level > 0 && !inFingerRange(level, key, true)) {
+            level--;
+        }
+        if (hint == fingerCursor) {
+            fingerChangedFrom = level;
+        }
+        fingerInsert(level, new Item(key, element));
+        fingerCursor = hint;
+        hint.positionAt(fingerNodes, fingerIndexes, fingerChangedFrom, fingerDepth);
+    }
+
+    /**
+     * Finds the level of the finger to start a search for key from,
+     * rebuilding the finger from the root if it has gone stale
+     * @param key being searched for
+     * @param forInsert whether the key may equal the top of the range
+     * @return level of the lowest finger node whose range holds key
+     */
+    private int fingerLevel(Object key, boolean forInsert) {
+        fingerCursor = null;
+        if (fingerModCount != modCount || fingerDepth == 0) {
+            ensureFinger(height());
+            fingerNodes[0] = root();
+            fingerLow[0] = null;
+            fingerHigh[0] = null;
+            fingerDepth = 1;
+            fingerModCount = modCount;
+            return 0;
+        }
+        int level = fingerDepth - 1;
+        while (level > 0 && !inFingerRange(level, key, forInsert)) {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * Decides whether key lies in the range of a finger node.  Equal keys
+     * can sit on either side of an item, so a search for a key equal to a
+     * bound must start higher; an insert can follow a key equal to the top
+     * bound down, as a descent from the root would.
+     */
+    private boolean inFingerRange(int level, Object key, boolean forInsert) {
+        Object low = fingerLow[level];
+        if (low != null && treeComp.compare(key, low) <= 0) {
+            return false;
+        }
+        Object high = fingerHigh[level];
+        if (high == null) {
+            return true;
+        }
+        int result = treeComp.compare(key, high);
+        return forInsert ? result <= 0 : result < 0;
+    }
+
+    // extends the finger from a node to its child at index
+    private void fingerStep(int level, int index) {
+        TFNode node = fingerNodes[level];
+        fingerIndexes[level] = index;
+        fingerNodes[level + 1] = node.getChild(index);
+        fingerLow[level + 1] = (index > 0)
+                ? node.getItem(index - 1).key() : fingerLow[level];
+        fingerHigh[level + 1] = (index < node.getNumItems())
+                ? node.getItem(index).key() : fingerHigh[level];
+    }
+
+    private void ensureFinger(int levels) {
+        if (fingerNodes == null || fingerNodes.length < levels + 1) {
+            //room for one more level, as the root may split
+            int length = Math.max(levels + 1, 4);
+            fingerNodes = new TFNode[length];
+            fingerIndexes = new int[length];
+            fingerLow = new Object[length];
+            fingerHigh = new Object[length];
+        }
+    }
+
+    /**
+     * Searches for key from the finger, leaving the finger on the node the
+     * search ends in
+     * @param key to be searched for
+     * @return the Item with the key; null if not found
+     */
+    private Item fingerFind(Object key) {
+        int level = fingerLevel(key, false);
+        while (true) {
+            TFNode node = fingerNodes[level];
+            int result = searchNode(node, key);
+            if (result >= 0 || node.getChild(0) == null) {
+                fingerIndexes[level] = (result >= 0) ? result : -result - 1;
+                fingerDepth = level + 1;
+                return (result >= 0) ? node.getItem(result) : null;
+            }
+            fingerStep(level++, -result - 1);
+        }
+    }
+
+    /**
+     * Inserts an item below a node of the finger whose range holds its
+     * key, and moves the finger onto the new item.  After a split the
+     * finger is walked down again only from the highest node the split
+     * reached, which kept its place.
+     * @param level of the finger node to start from
+     * @param item to be inserted
+     */
+    private void fingerInsert(int level, Item item) {
+        Object key = item.key();
+        TFNode node = fingerNodes[level];
+        while (node.getChild(0) != null) {
+            fingerStep(level++, findFirstGreaterThanOrEqualTo(node, key));
+            node = fingerNodes[level];
+        }
+        int index = findFirstGreaterThanOrEqualTo(node, key);
+        node.insertItem(index, item);
+        fingerIndexes[level] = index;
+        fingerDepth = level + 1;
+        adjustCounts(node, 1);
+        size++;
+        modCount++;
+        if (node.getNumItems() > maxItems) {
+            int top = level - 1;
+            while (top >= 0 && fingerNodes[top].getNumItems() == maxItems) {
+                top--;
+            }
+            fixOverflow(node);
+            if (top < 0) {
+                //the root split, so the path starts one level higher
+                ensureFinger(height());
+                fingerNodes[0] = root();
+                top = 0;
+            }
+            fingerChangedFrom = Math.min(fingerChangedFrom, top);
+            relocate(top, item);
+        }
+        fingerModCount = modCount;
+    }
+
+    /**
+     * Walks the finger down from a level to an item just inserted.  The
+     * item went in before every equal key, so it is always the first item
+     * not less than its key, and the descent can recognize it by identity.
+     */
+    private void relocate(int level, Item item) {
+        Object key = item.key();
+        while (true) {
+            TFNode node = fingerNodes[level];
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            if (index < node.getNumItems() && node.getItem(index) == item) {
+                fingerIndexes[level] = index;
+                fingerDepth = level + 1;
+                return;
+            }
+            fingerStep(level++, index);
+        }
+    }
+
+    /**
+     * Finds the entry with the greatest key less than or equal to key
+     * @param key to be compared
+     * @return Item found; null if there is none
+     */
+    public Item floor(Object key) {
+        return liveBelow(floorItem(key));
+    }
+
+    /**
+     * Finds the entry with the least key greater than or equal to key
+     * @param key to be compared
+     * @return Item found; null if there is none
+     */
+    public Item ceiling(Object key) {
+        return liveAbove(ceilingItem(key));
+    }
+
+    /**
+     * Finds the entry with the least key strictly greater than key
+     * @param key to be compared
+     * @return Item found; null if there is none
+     */
+    public Item higher(Object key) {
+        return liveAbove(higherItem(key));
+    }
+
+    /**
+     * Finds the entry with the greatest key strictly less than key
+     * @param key to be compared
+     * @return Item found; null if there is none
+     */
+    public Item lower(Object key) {
+        return liveBelow(lowerItem(key));
+    }
+
+    /**
+     * Steps down from a candidate to the nearest live entry, for when the
+     * candidate may have been removed lazily
+     * @param candidate Item found, possibly a tombstone
+     * @return the live Item with the greatest key not above the candidate's;
+     * null if there is none
+     */
+    private Item liveBelow(Item candidate) {
+        while (candidate != null && candidate.element() == TOMBSTONE) {
+            Item live = liveDuplicate(candidate.key());
+            if (live != null) {
+                return live;
+            }
+            candidate = lowerItem(candidate.key());
+        }
+        return candidate;
+    }
+
+    /**
+     * Steps up from a candidate to the nearest live entry
+     * @param candidate Item found, possibly a tombstone
+     * @return the live Item with the least key not below the candidate's;
+     * null if there is none
+     */
+    private Item liveAbove(Item candidate) {
+        while (candidate != null && candidate.element() == TOMBSTONE) {
+            Item live = liveDuplicate(candidate.key());
+            if (live != null) {
+                return live;
+            }
+            candidate = higherItem(candidate.key());
+        }
+        return candidate;
+    }
+
+    // floor, ceiling, higher and lower over every Item, tombstones included
+
+    private Item floorItem(Object key) {
+        Item candidate = null;
+        TFNode node = root();
+        while (node != null) {
+            int index = findFirstGreaterThan(node, key);
+            if (index > 0) {
+                candidate = node.getItem(index - 1);
+            }
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
+    private Item ceilingItem(Object key) {
+        Item candidate = null;
+        TFNode node = root();
+        while (node != null) {
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            if (index < node.getNumItems()) {
+                candidate = node.getItem(index);
+            }
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
+    private Item higherItem(Object key) {
+        Item candidate = null;
+        TFNode node = root();
+        while (node != null) {
+            int index = findFirstGreaterThan(node, key);
+            if (index < node.getNumItems()) {
+                candidate = node.getItem(index);
+            }
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
+    private Item lowerItem(Object key) {
+        Item candidate = null;
+        TFNode node = root();
+        while (node != null) {
+            int index = findFirstGreaterThanOrEqualTo(node, key);
+            if (index > 0) {
+                candidate = node.getItem(index - 1);
+            }
+            node = node.getChild(index);
+        }
+        return candidate;
+    }
+
+    /**
+     * Finds the first item with a key within a TFNode strictly greater than
+     * the current key
+     * @param T node being searched
+     * @param key being compared
+     * @return index of the first item greater than the key
+     */
+    private int findFirstGreaterThan(TFNode T, Object key) {
+        int low = 0;
+        int high = T.getNumItems();
+        if (high > BINARY_SEARCH_THRESHOLD) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (treeComp.compare(T.getItem(mid).key(), key) > 0) {
+                    high = mid;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+        while (low < high && treeComp.compare(T.getItem(low).key(), key) <= 0) {
+            low++;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a spliterator over the Items in key order.  It splits on node
+     * boundaries, so parallel streams divide the tree into balanced parts.
+     * The tree must not be modified while it is in use.
+     * @return spliterator over the tree
+     */
+    public Spliterator<Item> spliterator() {
+        return new TwoFourTreeSpliterator(this);
+    }
+
+    /**
+     * Returns a sequential stream of the Items in key order
+     * @return stream over the tree
+     */
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the Items, run in the common fork/join
+     * pool
+     * @return parallel stream over the tree
+     */
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Applies an action to every Item, using every core of the common
+     * fork/join pool; the action must be safe to call from several threads
+     * @param action to apply
+     */
+    public void parallelForEach(Consumer<? super Item> action) {
+        parallelStream().forEach(action);
+    }
+
+    /**
+     * Aggregates every Item in parallel, as Stream.reduce does
+     * @param identity starting value for each part of the tree
+     * @param accumulator folds one Item into a partial result
+     * @param combiner joins two partial results
+     * @return the combined result
+     */
+    public <R> R reduce(R identity, BiFunction<R, ? super Item, R> accumulator,
+            BinaryOperator<R> combiner) {
+        return parallelStream().reduce(identity, accumulator, combiner);
+    }
+
+    //accessors for cursors and spliterators, which walk the nodes directly
+    TFNode rootNode() {
+        return root();
+    }
+
+    int modCount() {
+        return modCount;
+    }
+
+    int compareKeys(Object key1, Object key2) {
+        return treeComp.compare(key1, key2);
+    }
+
+    int lowerBound(TFNode node, Object key) {
+        return findFirstGreaterThanOrEqualTo(node, key);
+    }
+
+    public static void main(String[] args) {
+        Comparator myComp = new IntegerComparator();
+        TwoFourTree myTree = new TwoFourTree(myComp);
+
+        Integer myInt1 = new Integer(47);
+        myTree.insertElement(myInt1, myInt1);
+        Integer myInt2 = new Integer(83);
+        myTree.insertElement(myInt2, myInt2);
+        Integer myInt3 = new Integer(22);
+        myTree.insertElement(myInt3, myInt3);
+
+        Integer myInt4 = new Integer(16);
+        myTree.insertElement(myInt4, myInt4);
+
+        Integer myInt5 = new Integer(49);
+        myTree.insertElement(myInt5, myInt5);
+
+        Integer myInt6 = new Integer(100);
+        myTree.insertElement(myInt6, myInt6);
+
+        Integer myInt7 = new Integer(38);
+        myTree.insertElement(myInt7, myInt7);
+
+        Integer myInt8 = new Integer(3);
+        myTree.insertElement(myInt8, myInt8);
+
+        Integer myInt9 = new Integer(53);
+        myTree.insertElement(myInt9, myInt9);
+
+        Integer myInt10 = new Integer(66);
+        myTree.insertElement(myInt10, myInt10);
+
+        Integer myInt11 = new Integer(19);
+        myTree.insertElement(myInt11, myInt11);
+
+        Integer myInt12 = new Integer(23);
+        myTree.insertElement(myInt12, myInt12);
+
+        Integer myInt13 = new Integer(24);
+        myTree.insertElement(myInt13, myInt13);
+
+        Integer myInt14 = new Integer(88);
+        myTree.insertElement(myInt14, myInt14);
+
+        Integer myInt15 = new Integer(1);
+        myTree.insertElement(myInt15, myInt15);
+
+        Integer myInt16 = new Integer(97);
+        myTree.insertElement(myInt16, myInt16);
+
+        Integer myInt17 = new Integer(94);
+        myTree.insertElement(myInt17, myInt17);
+
+        Integer myInt18 = new Integer(35);
+        myTree.insertElement(myInt18, myInt18);
+
+        Integer myInt19 = new Integer(51);
+        myTree.insertElement(myInt19, myInt19);
+
+        myTree.printAllElements();
+        System.out.println("done");
         
 //        myTree.findElement(7);
 
@@ -461,6 +2864,84 @@ public class TwoFourTree implements Dictionary {
         System.out.println();
     }
 
+    /**
+     * Checks the invariants of the tree: parents and children point to
+     * each other, every leaf is at the same depth, every node but the root
+     * holds between the minimum and maximum number of items, and keys are
+     * in order within each node and across nodes.  With subtree counts on,
+     * each node's count is checked against its items and children.  Unlike
+     * checkTree, nothing is printed.
+     * @return description of the first broken invariant; null if none
+     */
+    public String checkStructure() {
+        TFNode root = root();
+        if (root == null) {
+            return null;
+        }
+        if (root.getParent() != null) {
+            return "root has a parent";
+        }
+        if (root.getNumItems() == 0) {
+            return "root holds no items";
+        }
+        return checkStructureFromNode(root, 1, height(), null, null);
+    }
+
+    // checks the subtree under node, whose keys must lie between low and
+    // high (either null when unbounded), and whose leaves must be at height
+    private String checkStructureFromNode(TFNode node, int depth, int height,
+            Object low, Object high) {
+        int numItems = node.getNumItems();
+        if (numItems > maxItems || (node != root() && numItems < minItems)) {
+            return "node at depth " + depth + " holds " + numItems + " items";
+        }
+        for (int i = 0; i < numItems; i++) {
+            Object key = node.getItem(i).key();
+            if (i > 0 && treeComp.compare(node.getItem(i - 1).key(), key) > 0) {
+                return "keys out of order within node at depth " + depth;
+            }
+            if ((low != null && treeComp.compare(key, low) < 0)
+                    || (high != null && treeComp.compare(key, high) > 0)) {
+                return "key " + key + " at depth " + depth + " is outside its parent's range";
+            }
+        }
+        int total = numItems;
+        if (node.getChild(0) == null) {
+            for (int i = 1; i <= numItems; i++) {
+                if (node.getChild(i) != null) {
+                    return "mixed null and non-null children at depth " + depth;
+                }
+            }
+            if (depth != height) {
+                return "leaf at depth " + depth + ", expected " + height;
+            }
+        }
+        else {
+            for (int i = 0; i <= numItems; i++) {
+                TFNode child = node.getChild(i);
+                if (child == null) {
+                    return "mixed null and non-null children at depth " + depth;
+                }
+                if (child.getParent() != node) {
+                    return "child " + i + " at depth " + depth + " has the wrong parent";
+                }
+                Object childLow = (i == 0) ? low : node.getItem(i - 1).key();
+                Object childHigh = (i == numItems) ? high : node.getItem(i).key();
+                String problem = checkStructureFromNode(child, depth + 1, height,
+                        childLow, childHigh);
+                if (problem != null) {
+                    return problem;
+                }
+                total += child.getSubtreeSize();
+            }
+        }
+        if (countSubtrees && node.getSubtreeSize() != total) {
+            return "node at depth " + depth + " counts " + node.getSubtreeSize()
+                    + " entries, holds " + total;
+        }
+        return null;
+    }
+
     // checks if tree is properly hooked up, i.e., children point to parents
     public void checkTree() {
         checkTreeFromNode(treeRoot);
@@ -0,0 +1,170 @@
+package termproject;
+
+import java.util.Arrays;
+
+/**
+ * Ordered cursor over a range of a TwoFourTree.
+ *
+ * @version 1.0
+ * File: TwoFourTreeCursor.java
+ *
+ * Description: The cursor walks the tree in key order without recursion,
+ * keeping the path from the root to its position in a pair of arrays sized
+ * to the tree's height.  Each call to next() moves it to the following
+ * entry, which is then read through key(), element() and item(); the cursor
+ * itself is the only object the walk needs, so a range of k entries costs
+ * one descent plus O(k) steps.  Entries the tree has removed lazily are
+ * stepped over.  Modifying the tree invalidates the cursor.
+ */
+public class TwoFourTreeCursor {
+    private final TwoFourTree tree;
+    // path to the current position; pathIndexes[d] is the next item of
+    // pathNodes[d] to visit, after the subtree to its left
+    TFNode[] pathNodes;
+    int[] pathIndexes;
+    int depth;
+    private Object highKey;
+    private Item current;
+    int expectedModCount;
+
+    TwoFourTreeCursor(TwoFourTree tree, Object lowKey, Object highKey) {
+        this.tree = tree;
+        reset(lowKey, highKey);
+    }
+
+    /**
+     * Repositions the cursor before the first entry of a new range, reusing
+     * its path arrays
+     * @param lowKey smallest key to visit, inclusive; null for no bound
+     * @param highKey key to stop before, exclusive; null for no bound
+     */
+    public void reset(Object lowKey, Object highKey) {
+        this.highKey = highKey;
+        current = null;
+        int height = tree.height();
+        if (pathNodes == null || pathNodes.length < height) {
+            pathNodes = new TFNode[Math.max(height, 1)];
+            pathIndexes = new int[Math.max(height, 1)];
+        }
+        depth = 0;
+        TFNode node = tree.rootNode();
+        while (node != null) {
+            int index = (lowKey == null) ? 0 : tree.lowerBound(node, lowKey);
+            pathNodes[depth] = node;
+            pathIndexes[depth] = index;
+            depth++;
+            node = node.getChild(index);
+        }
+        expectedModCount = tree.modCount();
+    }
+
+    /**
+     * Puts the cursor on an entry the tree has just inserted, as if next()
+     * had returned it
+     * @param nodes path from the root to the node holding the entry
+     * @param indexes child taken from each node, and the entry's index in
+     * the last
+     * @param from first level of the path that differs from the cursor's
+     * @param levels length of the path
+     */
+    void positionAt(TFNode[] nodes, int[] indexes, int from, int levels) {
+        if (pathNodes.length < nodes.length) {
+            pathNodes = new TFNode[nodes.length];
+            pathIndexes = new int[nodes.length];
+            from = 0;
+        }
+        System.arraycopy(nodes, from, pathNodes, from, levels - from);
+        System.arraycopy(indexes, from, pathIndexes, from, levels - from);
+        depth = levels;
+        TFNode node = pathNodes[depth - 1];
+        int index = pathIndexes[depth - 1];
+        current = node.getItem(index);
+        pathIndexes[depth - 1] = index + 1;
+        //the subtree right of the entry comes next, leftmost first
+        TFNode child = node.getChild(index + 1);
+        while (child != null) {
+            if (depth == pathNodes.length) {
+                pathNodes = Arrays.copyOf(pathNodes, depth + 1);
+                pathIndexes = Arrays.copyOf(pathIndexes, depth + 1);
+            }
+            pathNodes[depth] = child;
+            pathIndexes[depth] = 0;
+            depth++;
+            child = child.getChild(0);
+        }
+        expectedModCount = tree.modCount();
+    }
+
+    TwoFourTree tree() {
+        return tree;
+    }
+
+    /**
+     * Advances to the next entry in key order
+     * @return true if the cursor is on an entry, false once the range is done
+     * @exception TwoFourTreeException if the tree was modified since the
+     * cursor was positioned
+     */
+    public boolean next() {
+        if (expectedModCount != tree.modCount()) {
+            throw new TwoFourTreeException("Tree was modified during iteration");
+        }
+        while (depth > 0) {
+            TFNode node = pathNodes[depth - 1];
+            int index = pathIndexes[depth - 1];
+            if (index < node.getNumItems()) {
+                Item item = node.getItem(index);
+                pathIndexes[depth - 1] = index + 1;
+                //the subtree right of this item comes next, leftmost first
+                TFNode child = node.getChild(index + 1);
+                while (child != null) {
+                    pathNodes[depth] = child;
+                    pathIndexes[depth] = 0;
+                    depth++;
+                    child = child.getChild(0);
+                }
+                if (highKey != null && tree.compareKeys(item.key(), highKey) >= 0) {
+                    depth = 0;
+                    break;
+                }
+                if (tree.isTombstone(item)) {
+                    continue;
+                }
+                current = item;
+                return true;
+            }
+            pathNodes[depth - 1] = null;
+            depth--;
+        }
+        current = null;
+        return false;
+    }
+
+    /**
+     * Returns the Item the cursor is on
+     * @return current Item
+     * @exception TwoFourTreeException if next() has not returned true
+     */
+    public Item item() {
+        if (current == null) {
+            throw new TwoFourTreeException("Cursor is not on an entry");
+        }
+        return current;
+    }
+
+    /**
+     * Returns the key of the entry the cursor is on
+     * @return current key
+     */
+    public Object key() {
+        return item().key();
+    }
+
+    /**
+     * Returns the element of the entry the cursor is on
+     * @return current element
+     */
+    public Object element() {
+        return item().element();
+    }
+}
@@ -0,0 +1,189 @@
+package termproject;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Operation counters for one TwoFourTree.
+ *
+ * @version 1.0
+ * File: TwoFourTreeMetrics.java
+ *
+ * Description: The tree bumps these counters as it works: every key
+ * comparison, every node split, every transfer and fusion that repairs an
+ * underflow, and every time the root grows or shrinks.  The counters are
+ * LongAdders, so bumping one is a cheap uncontended add; while metrics are
+ * off the tree holds no metrics object and skips them altogether.  Height
+ * and fill are worked out on request from the tree's height, size and a
+ * running node count, so reading them never walks the whole tree, except
+ * for the first read after a split or join, which recounts the nodes.
+ * snapshot() copies everything into a TwoFourTreeStats, and register()
+ * publishes the same numbers as a JMX MBean.
+ */
+public class TwoFourTreeMetrics implements TwoFourTreeMetricsMBean {
+    private final TwoFourTree tree;
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder transfers = new LongAdder();
+    private final LongAdder fusions = new LongAdder();
+    private final LongAdder rootGrowths = new LongAdder();
+    private final LongAdder rootShrinks = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    // set when a split or join moved whole subtrees between trees
+    private boolean nodesStale = false;
+    private ObjectName registeredName;
+
+    TwoFourTreeMetrics(TwoFourTree tree, long nodeCount) {
+        this.tree = tree;
+        nodes.add(nodeCount);
+    }
+
+    LongAdder comparisonCounter() {
+        return comparisons;
+    }
+
+    void countSplits(int count) {
+        splits.add(count);
+    }
+
+    void countTransfer() {
+        transfers.increment();
+    }
+
+    void countFusion() {
+        fusions.increment();
+    }
+
+    void countRootGrowth() {
+        rootGrowths.increment();
+    }
+
+    void countRootShrink() {
+        rootShrinks.increment();
+    }
+
+    void countNodes(int delta) {
+        nodes.add(delta);
+    }
+
+    void markNodesStale() {
+        nodesStale = true;
+    }
+
+    // the running node count, recounted first if it went stale
+    private long nodeCount() {
+        if (nodesStale) {
+            nodesStale = false;
+            nodes.reset();
+            nodes.add(tree.countNodes());
+        }
+        return nodes.sum();
+    }
+
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    public long getSplits() {
+        return splits.sum();
+    }
+
+    public long getTransfers() {
+        return transfers.sum();
+    }
+
+    public long getFusions() {
+        return fusions.sum();
+    }
+
+    public long getRootGrowths() {
+        return rootGrowths.sum();
+    }
+
+    public long getRootShrinks() {
+        return rootShrinks.sum();
+    }
+
+    public int getHeight() {
+        return tree.height();
+    }
+
+    public int getSize() {
+        return tree.size();
+    }
+
+    public long getNodeCount() {
+        return nodeCount();
+    }
+
+    public double getAverageFill() {
+        long nodeCount = nodeCount();
+        if (nodeCount == 0) {
+            return 0.0;
+        }
+        return (double) tree.size() / ((double) nodeCount * tree.getMaxItems());
+    }
+
+    public void reset() {
+        comparisons.reset();
+        splits.reset();
+        transfers.reset();
+        fusions.reset();
+        rootGrowths.reset();
+        rootShrinks.reset();
+    }
+
+    /**
+     * Copies the current values
+     * @return snapshot of every counter and gauge
+     */
+    public TwoFourTreeStats snapshot() {
+        long nodeCount = nodeCount();
+        int size = tree.size();
+        double fill = (nodeCount == 0) ? 0.0
+                : (double) size / ((double) nodeCount * tree.getMaxItems());
+        return new TwoFourTreeStats(comparisons.sum(), splits.sum(), transfers.sum(),
+                fusions.sum(), rootGrowths.sum(), rootShrinks.sum(), tree.height(),
+                size, nodeCount, fill);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * termproject:type=TwoFourTree,name=name
+     * @param name to tell this tree apart from others
+     * @return the name the MBean was registered under
+     * @exception TwoFourTreeException if the MBean cannot be registered
+     */
+    public synchronized ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("termproject:type=TwoFourTree,name="
+                    + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        }
+        catch (JMException e) {
+            throw new TwoFourTreeException("Cannot register metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the MBean registered by register, if any
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        }
+        catch (JMException e) {
+            throw new TwoFourTreeException("Cannot unregister metrics: " + e.getMessage());
+        }
+        registeredName = null;
+    }
+}
@@ -0,0 +1,38 @@
+package termproject;
+
+/**
+ * JMX view of the metrics of one TwoFourTree.
+ *
+ * @version 1.0
+ * File: TwoFourTreeMetricsMBean.java
+ */
+public interface TwoFourTreeMetricsMBean {
+
+    public long getComparisons();
+
+    public long getSplits();
+
+    public long getTransfers();
+
+    public long getFusions();
+
+    public long getRootGrowths();
+
+    public long getRootShrinks();
+
+    public int getHeight();
+
+    public int getSize();
+
+    public long getNodeCount();
+
+    /**
+     * Returns the share of item slots in use, from 0 to 1
+     */
+    public double getAverageFill();
+
+    /**
+     * Zeroes the event counters; height, size and node count are kept
+     */
+    public void reset();
+}
@@ -0,0 +1,74 @@
+package termproject;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only point-in-time view of a PersistentTwoFourTree.
+ *
+ * @version 1.0
+ * File: TwoFourTreeSnapshot.java
+ *
+ * Description: A snapshot holds the root the tree had when it was taken.
+ * The live tree never changes the nodes reachable from that root, so a
+ * snapshot can be read from any thread, without locking, while the tree
+ * keeps changing.  Insert and remove are refused.
+ */
+public class TwoFourTreeSnapshot implements Dictionary {
+    private final Comparator treeComp;
+    private final PersistentTwoFourTree.Node treeRoot;
+    private final int size;
+
+    TwoFourTreeSnapshot(Comparator comp, PersistentTwoFourTree.Node root, int size) {
+        this.treeComp = comp;
+        this.treeRoot = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Searches the snapshot to determine if key is present
+     * @param key to be searched for
+     * @return object corresponding to key; null if not found
+     */
+    public Object findElement(Object key) {
+        return PersistentTwoFourTree.find(treeComp, treeRoot, key);
+    }
+
+    public void insertElement(Object key, Object element) {
+        throw new TwoFourTreeException("Snapshot is read-only");
+    }
+
+    public Object removeElement(Object key) throws ElementNotFoundException {
+        throw new TwoFourTreeException("Snapshot is read-only");
+    }
+
+    /**
+     * Passes every key and element of the snapshot to action, in key order
+     * @param action receiving each key and its element
+     */
+    public void forEach(BiConsumer<Object, Object> action) {
+        visit(treeRoot, action);
+    }
+
+    private void visit(PersistentTwoFourTree.Node node, BiConsumer<Object, Object> action) {
+        if (node == null) {
+            return;
+        }
+        for (int i = 0; i < node.numItems; i++) {
+            if (node.children != null) {
+                visit(node.children[i], action);
+            }
+            action.accept(node.keys[i], node.elements[i]);
+        }
+        if (node.children != null) {
+            visit(node.children[node.numItems], action);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package termproject;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the Items of a TwoFourTree, in key order.
+ *
+ * @version 1.0
+ * File: TwoFourTreeSpliterator.java
+ *
+ * Description: A spliterator covers a run of adjacent children of one node,
+ * the items between them, and optionally one item from an ancestor that
+ * comes first.  trySplit cuts that run at its middle child; when only one
+ * child is left it steps down into it.  Because every leaf of the tree is
+ * at the same depth, the two halves of a split hold roughly the same number
+ * of entries, which is what fork/join needs for balanced parallel work.
+ */
+public class TwoFourTreeSpliterator implements Spliterator<Item> {
+    private final TwoFourTree tree;
+    private TFNode node;
+    private int childLo;
+    private int childHi;
+    // item from an ancestor that precedes everything else covered
+    private Item leading;
+    private long estimate;
+    private boolean exact;
+    private final int expectedModCount;
+
+    // traversal path, created by the first tryAdvance; frame 0 is node
+    private TFNode[] pathNodes;
+    private int[] pathIndexes;
+    private int depth;
+
+    TwoFourTreeSpliterator(TwoFourTree tree) {
+        this(tree, tree.rootNode(), 0,
+                (tree.rootNode() == null) ? 0 : tree.rootNode().getNumItems() + 1,
+                null, tree.size());
+        exact = true;
+    }
+
+    private TwoFourTreeSpliterator(TwoFourTree tree, TFNode node, int childLo,
+            int childHi, Item leading, long estimate) {
+        this.tree = tree;
+        this.node = node;
+        this.childLo = childLo;
+        this.childHi = childHi;
+        this.leading = leading;
+        this.estimate = estimate;
+        this.expectedModCount = tree.modCount();
+    }
+
+    public Spliterator<Item> trySplit() {
+        if (pathNodes != null || node == null) {
+            return null;
+        }
+        while (childHi - childLo == 1 && node.getChild(childLo) != null) {
+            node = node.getChild(childLo);
+            childLo = 0;
+            childHi = node.getNumItems() + 1;
+        }
+        if (childHi - childLo < 2) {
+            return null;
+        }
+        int mid = (childLo + childHi) >>> 1;
+        long half = estimate / 2;
+        TwoFourTreeSpliterator prefix = new TwoFourTreeSpliterator(
+                tree, node, childLo, mid, leading, half);
+        leading = node.getItem(mid - 1);
+        childLo = mid;
+        estimate -= half;
+        exact = false;
+        return prefix;
+    }
+
+    public boolean tryAdvance(Consumer<? super Item> action) {
+        if (leading != null) {
+            Item item = leading;
+            leading = null;
+            if (!tree.isTombstone(item)) {
+                action.accept(item);
+                return true;
+            }
+        }
+        if (node == null) {
+            return false;
+        }
+        if (pathNodes == null) {
+            start();
+        }
+        while (depth > 0) {
+            TFNode current = pathNodes[depth - 1];
+            int index = pathIndexes[depth - 1];
+            int end = (depth == 1) ? childHi - 1 : current.getNumItems();
+            if (index < end) {
+                Item item = current.getItem(index);
+                pathIndexes[depth - 1] = index + 1;
+                TFNode child = current.getChild(index + 1);
+                while (child != null) {
+                    pathNodes[depth] = child;
+                    pathIndexes[depth] = 0;
+                    depth++;
+                    child = child.getChild(0);
+                }
+                if (tree.isTombstone(item)) {
+                    continue;
+                }
+                action.accept(item);
+                return true;
+            }
+            depth--;
+        }
+        node = null;
+        checkForModification();
+        return false;
+    }
+
+    public void forEachRemaining(Consumer<? super Item> action) {
+        if (pathNodes != null) {
+            while (tryAdvance(action)) {
+            }
+            return;
+        }
+        if (leading != null) {
+            accept(leading, action);
+            leading = null;
+        }
+        if (node == null) {
+            return;
+        }
+        for (int c = childLo; c < childHi; c++) {
+            visit(node.getChild(c), action);
+            if (c < childHi - 1) {
+                accept(node.getItem(c), action);
+            }
+        }
+        node = null;
+        checkForModification();
+    }
+
+    private void visit(TFNode start, Consumer<? super Item> action) {
+        if (start == null) {
+            return;
+        }
+        int numItems = start.getNumItems();
+        for (int i = 0; i < numItems; i++) {
+            visit(start.getChild(i), action);
+            accept(start.getItem(i), action);
+        }
+        visit(start.getChild(numItems), action);
+    }
+
+    // passes the item on unless it was removed lazily
+    private void accept(Item item, Consumer<? super Item> action) {
+        if (!tree.isTombstone(item)) {
+            action.accept(item);
+        }
+    }
+
+    private void start() {
+        int height = Math.max(tree.height(), 1);
+        pathNodes = new TFNode[height];
+        pathIndexes = new int[height];
+        pathNodes[0] = node;
+        pathIndexes[0] = childLo;
+        depth = 1;
+        TFNode child = node.getChild(childLo);
+        while (child != null) {
+            pathNodes[depth] = child;
+            pathIndexes[depth] = 0;
+            depth++;
+            child = child.getChild(0);
+        }
+    }
+
+    private void checkForModification() {
+        if (expectedModCount != tree.modCount()) {
+            throw new TwoFourTreeException("Tree was modified during iteration");
+        }
+    }
+
+    public long estimateSize() {
+        return (node == null && leading == null) ? 0 : estimate;
+    }
+
+    public int characteristics() {
+        return ORDERED | NONNULL | (exact ? SIZED : 0);
+    }
+}
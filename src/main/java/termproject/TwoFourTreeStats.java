@@ -0,0 +1,83 @@
+package termproject;
+
+/**
+ * Point-in-time copy of the metrics of a TwoFourTree.
+ *
+ * @version 1.0
+ * File: TwoFourTreeStats.java
+ */
+public class TwoFourTreeStats {
+    private final long comparisons;
+    private final long splits;
+    private final long transfers;
+    private final long fusions;
+    private final long rootGrowths;
+    private final long rootShrinks;
+    private final int height;
+    private final int size;
+    private final long nodeCount;
+    private final double averageFill;
+
+    TwoFourTreeStats(long comparisons, long splits, long transfers, long fusions,
+            long rootGrowths, long rootShrinks, int height, int size, long nodeCount,
+            double averageFill) {
+        this.comparisons = comparisons;
+        this.splits = splits;
+        this.transfers = transfers;
+        this.fusions = fusions;
+        this.rootGrowths = rootGrowths;
+        this.rootShrinks = rootShrinks;
+        this.height = height;
+        this.size = size;
+        this.nodeCount = nodeCount;
+        this.averageFill = averageFill;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getSplits() {
+        return splits;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+
+    public long getFusions() {
+        return fusions;
+    }
+
+    public long getRootGrowths() {
+        return rootGrowths;
+    }
+
+    public long getRootShrinks() {
+        return rootShrinks;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public double getAverageFill() {
+        return averageFill;
+    }
+
+    public String toString() {
+        return "comparisons=" + comparisons + " splits=" + splits
+                + " transfers=" + transfers + " fusions=" + fusions
+                + " rootGrowths=" + rootGrowths + " rootShrinks=" + rootShrinks
+                + " height=" + height + " size=" + size + " nodes=" + nodeCount
+                + " fill=" + String.format("%.3f", averageFill);
+    }
+}
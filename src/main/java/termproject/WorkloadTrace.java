@@ -0,0 +1,185 @@
+package termproject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded stream of Dictionary operations on Integer keys.
+ *
+ * @version 1.0
+ * File: WorkloadTrace.java
+ *
+ * Description: A trace is a list of inserts, finds and removes, each with
+ * its key, held in two parallel arrays so replaying it allocates nothing.
+ * On disk it is a header followed by one record per operation: the key,
+ * zigzag-encoded so small negative keys stay small, shifted left two bits
+ * to make room for the operation, written as a variable-length integer of
+ * seven bits per byte.  Keys below 32 take one byte and most traces
+ * average two to four bytes per operation.  RecordingDictionary writes the
+ * same records as calls happen.
+ */
+public class WorkloadTrace {
+    public static final byte INSERT = 0;
+    public static final byte FIND = 1;
+    public static final byte REMOVE = 2;
+    static final int MAGIC = 0x54465754;
+    static final byte VERSION = 1;
+    private static final String[] NAMES = {"insert", "find", "remove"};
+
+    private byte[] ops;
+    private int[] keys;
+    private int size = 0;
+
+    /**
+     * Creates an empty trace
+     */
+    public WorkloadTrace() {
+        ops = new byte[16];
+        keys = new int[16];
+    }
+
+    /**
+     * Appends an operation
+     * @param op INSERT, FIND or REMOVE
+     * @param key of the operation
+     * @exception TwoFourTreeException if op is not an operation
+     */
+    public void add(byte op, int key) {
+        if (op < INSERT || op > REMOVE) {
+            throw new TwoFourTreeException("Unknown trace operation " + op);
+        }
+        if (size == ops.length) {
+            ops = Arrays.copyOf(ops, 2 * size);
+            keys = Arrays.copyOf(keys, 2 * size);
+        }
+        ops[size] = op;
+        keys[size] = key;
+        size++;
+    }
+
+    /**
+     * Returns the number of operations
+     * @return length of the trace
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an operation
+     * @param index of the operation
+     * @return INSERT, FIND or REMOVE
+     */
+    public byte op(int index) {
+        return ops[index];
+    }
+
+    /**
+     * Returns the key of an operation
+     * @param index of the operation
+     * @return its key
+     */
+    public int key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the name of an operation, for reports
+     * @param op INSERT, FIND or REMOVE
+     * @return lower-case name
+     */
+    public static String name(byte op) {
+        return NAMES[op];
+    }
+
+    /**
+     * Writes the trace to a file, replacing it
+     * @param file to write
+     * @exception IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            writeHeader(out);
+            for (int i = 0; i < size; i++) {
+                writeRecord(out, ops[i], keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a trace written by write or by RecordingDictionary
+     * @param file to read
+     * @return the trace
+     * @exception IOException if the file cannot be read, is not a trace, or
+     * ends in the middle of a record
+     */
+    public static WorkloadTrace read(Path file) throws IOException {
+        WorkloadTrace trace = new WorkloadTrace();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException(file + " is not a workload trace");
+            }
+            int first;
+            while ((first = in.read()) >= 0) {
+                long record = readVarLong(in, first);
+                if ((record & 3) > REMOVE) {
+                    throw new IOException("Unknown trace operation in " + file);
+                }
+                int zigzag = (int) (record >>> 2);
+                trace.add((byte) (record & 3), (zigzag >>> 1) ^ -(zigzag & 1));
+            }
+        }
+        return trace;
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Writes one operation in the file format
+     * @param out stream to write to
+     * @param op INSERT, FIND or REMOVE
+     * @param key of the operation
+     */
+    static void writeRecord(OutputStream out, byte op, int key) throws IOException {
+        long zigzag = ((key << 1) ^ (key >> 31)) & 0xFFFFFFFFL;
+        long record = (zigzag << 2) | op;
+        while ((record & ~0x7FL) != 0) {
+            out.write((int) ((record & 0x7F) | 0x80));
+            record >>>= 7;
+        }
+        out.write((int) record);
+    }
+
+    // reads the rest of a variable-length integer whose first byte is read
+    private static long readVarLong(InputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Trace ends in the middle of a record");
+            }
+            if (shift > 28) {
+                throw new IOException("Trace record is too long");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}